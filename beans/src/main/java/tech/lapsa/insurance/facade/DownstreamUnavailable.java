@@ -0,0 +1,14 @@
+package tech.lapsa.insurance.facade;
+
+import javax.ejb.EJBException;
+
+// the downstream call is rejected without being made, either the circuit is
+// open or the bulkhead is full
+public class DownstreamUnavailable extends EJBException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DownstreamUnavailable(final String message) {
+        super(message);
+    }
+}
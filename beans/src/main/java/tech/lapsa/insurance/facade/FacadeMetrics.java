@@ -0,0 +1,20 @@
+package tech.lapsa.insurance.facade;
+
+import javax.ejb.Local;
+import javax.ejb.Remote;
+
+public interface FacadeMetrics {
+
+    public static final String BEAN_NAME = "FacadeMetricsBean";
+
+    @Local
+    public interface FacadeMetricsLocal extends FacadeMetrics {
+    }
+
+    @Remote
+    public interface FacadeMetricsRemote extends FacadeMetrics {
+    }
+
+    // all the metrics in the Prometheus text exposition format
+    String scrape();
+}
@@ -0,0 +1,16 @@
+package tech.lapsa.insurance.facade;
+
+import java.util.Map;
+
+public interface FacadeMetricsMXBean {
+
+    public static final String OBJECT_NAME = "tech.lapsa.insurance.facade:type=FacadeMetrics";
+
+    Map<String, Long> getInvocations();
+
+    Map<String, Long> getErrors();
+
+    Map<String, Long> getDownstreamCalls();
+
+    String scrape();
+}
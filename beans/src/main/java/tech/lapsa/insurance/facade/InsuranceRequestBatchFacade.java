@@ -0,0 +1,23 @@
+package tech.lapsa.insurance.facade;
+
+import java.util.List;
+
+import javax.ejb.Local;
+import javax.ejb.Remote;
+
+import tech.lapsa.java.commons.exceptions.IllegalArgument;
+
+public interface InsuranceRequestBatchFacade {
+
+    public static final String BEAN_NAME = InsuranceRequestFacade.BEAN_NAME;
+
+    @Local
+    public interface InsuranceRequestBatchFacadeLocal extends InsuranceRequestBatchFacade {
+    }
+
+    @Remote
+    public interface InsuranceRequestBatchFacadeRemote extends InsuranceRequestBatchFacade {
+    }
+
+    InvoicePaymentBatchResult invoicesPaidByTheir(List<InvoicePayment> payments) throws IllegalArgument;
+}
@@ -0,0 +1,132 @@
+package tech.lapsa.insurance.facade;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Currency;
+
+import tech.lapsa.java.commons.function.MyObjects;
+
+public final class InvoicePayment implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static InvoicePaymentBuilder builder() {
+        return new InvoicePaymentBuilder();
+    }
+
+    public static final class InvoicePaymentBuilder {
+
+        private Integer requestId;
+        private String methodName;
+        private Instant instant;
+        private Double amount;
+        private Currency currency;
+        private String card;
+        private String cardBank;
+        private String reference;
+        private String payerName;
+
+        private InvoicePaymentBuilder() {
+        }
+
+        public InvoicePaymentBuilder withRequestId(final Integer requestId) {
+            this.requestId = requestId;
+            return this;
+        }
+
+        public InvoicePaymentBuilder withMethodName(final String methodName) {
+            this.methodName = methodName;
+            return this;
+        }
+
+        public InvoicePaymentBuilder withInstant(final Instant instant) {
+            this.instant = instant;
+            return this;
+        }
+
+        public InvoicePaymentBuilder withAmount(final Double amount, final Currency currency) {
+            this.amount = amount;
+            this.currency = currency;
+            return this;
+        }
+
+        public InvoicePaymentBuilder withCard(final String card, final String cardBank) {
+            this.card = card;
+            this.cardBank = cardBank;
+            return this;
+        }
+
+        public InvoicePaymentBuilder withReference(final String reference) {
+            this.reference = reference;
+            return this;
+        }
+
+        public InvoicePaymentBuilder withPayerName(final String payerName) {
+            this.payerName = payerName;
+            return this;
+        }
+
+        public InvoicePayment build() throws IllegalArgumentException {
+            MyObjects.requireNonNull(requestId, "requestId");
+            return new InvoicePayment(this);
+        }
+    }
+
+    private final Integer requestId;
+    private final String methodName;
+    private final Instant instant;
+    private final Double amount;
+    private final Currency currency;
+    private final String card;
+    private final String cardBank;
+    private final String reference;
+    private final String payerName;
+
+    private InvoicePayment(final InvoicePaymentBuilder builder) {
+        this.requestId = builder.requestId;
+        this.methodName = builder.methodName;
+        this.instant = builder.instant;
+        this.amount = builder.amount;
+        this.currency = builder.currency;
+        this.card = builder.card;
+        this.cardBank = builder.cardBank;
+        this.reference = builder.reference;
+        this.payerName = builder.payerName;
+    }
+
+    public Integer getRequestId() {
+        return requestId;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public Instant getInstant() {
+        return instant;
+    }
+
+    public Double getAmount() {
+        return amount;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public String getCard() {
+        return card;
+    }
+
+    public String getCardBank() {
+        return cardBank;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public String getPayerName() {
+        return payerName;
+    }
+}
@@ -0,0 +1,31 @@
+package tech.lapsa.insurance.facade;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+public final class InvoicePaymentBatchResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Set<Integer> paid;
+    private final Map<Integer, String> failed;
+
+    public InvoicePaymentBatchResult(final Set<Integer> paid, final Map<Integer, String> failed) {
+        this.paid = Collections.unmodifiableSet(new LinkedHashSet<>(paid));
+        this.failed = Collections.unmodifiableMap(new LinkedHashMap<>(failed));
+    }
+
+    // request ids marked as paid
+    public Set<Integer> getPaid() {
+        return paid;
+    }
+
+    // request ids that were not marked as paid with the failure reason
+    public Map<Integer, String> getFailed() {
+        return failed;
+    }
+}
@@ -0,0 +1,23 @@
+package tech.lapsa.insurance.facade;
+
+import java.util.Collection;
+
+import javax.ejb.Local;
+import javax.ejb.Remote;
+
+import tech.lapsa.java.commons.exceptions.IllegalArgument;
+
+public interface PolicyBatchFacade {
+
+    public static final String BEAN_NAME = PolicyFacade.BEAN_NAME;
+
+    @Local
+    public interface PolicyBatchFacadeLocal extends PolicyBatchFacade {
+    }
+
+    @Remote
+    public interface PolicyBatchFacadeRemote extends PolicyBatchFacade {
+    }
+
+    PolicyBatchResult getByNumbers(Collection<String> numbers) throws IllegalArgument;
+}
@@ -0,0 +1,39 @@
+package tech.lapsa.insurance.facade;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.lapsa.insurance.domain.policy.Policy;
+
+public final class PolicyBatchResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Map<String, Policy> found;
+    private final Set<String> notFound;
+    private final Set<String> failed;
+
+    public PolicyBatchResult(final Map<String, Policy> found, final Set<String> notFound, final Set<String> failed) {
+        this.found = Collections.unmodifiableMap(new LinkedHashMap<>(found));
+        this.notFound = Collections.unmodifiableSet(new LinkedHashSet<>(notFound));
+        this.failed = Collections.unmodifiableSet(new LinkedHashSet<>(failed));
+    }
+
+    public Map<String, Policy> getFound() {
+        return found;
+    }
+
+    public Set<String> getNotFound() {
+        return notFound;
+    }
+
+    // the numbers whose lookup failed, they are neither found nor known to be
+    // missing
+    public Set<String> getFailed() {
+        return failed;
+    }
+}
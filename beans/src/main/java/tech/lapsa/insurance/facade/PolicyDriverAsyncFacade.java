@@ -0,0 +1,28 @@
+package tech.lapsa.insurance.facade;
+
+import java.util.concurrent.Future;
+
+import javax.ejb.Local;
+import javax.ejb.Remote;
+
+import com.lapsa.insurance.domain.policy.PolicyDriver;
+
+import tech.lapsa.java.commons.exceptions.IllegalArgument;
+import tech.lapsa.kz.taxpayer.TaxpayerNumber;
+
+public interface PolicyDriverAsyncFacade {
+
+    public static final String BEAN_NAME = PolicyDriverFacade.BEAN_NAME;
+
+    @Local
+    public interface PolicyDriverAsyncFacadeLocal extends PolicyDriverAsyncFacade {
+    }
+
+    @Remote
+    public interface PolicyDriverAsyncFacadeRemote extends PolicyDriverAsyncFacade {
+    }
+
+    Future<PolicyDriver> getByTaxpayerNumberAsync(TaxpayerNumber idNumber) throws IllegalArgument, PolicyDriverNotFound;
+
+    Future<PolicyDriver> getByTaxpayerNumberOrDefaultAsync(TaxpayerNumber taxpayerNumber) throws IllegalArgument;
+}
@@ -0,0 +1,41 @@
+package tech.lapsa.insurance.facade;
+
+import java.util.List;
+import java.util.concurrent.Future;
+
+import javax.ejb.Local;
+import javax.ejb.Remote;
+
+import com.lapsa.insurance.domain.policy.PolicyVehicle;
+
+import tech.lapsa.java.commons.exceptions.IllegalArgument;
+import tech.lapsa.kz.vehicle.VehicleRegNumber;
+
+public interface PolicyVehicleAsyncFacade {
+
+    public static final String BEAN_NAME = PolicyVehicleFacade.BEAN_NAME;
+
+    @Local
+    public interface PolicyVehicleAsyncFacadeLocal extends PolicyVehicleAsyncFacade {
+    }
+
+    @Remote
+    public interface PolicyVehicleAsyncFacadeRemote extends PolicyVehicleAsyncFacade {
+    }
+
+    Future<List<PolicyVehicle>> fetchAllByRegNumberAsync(VehicleRegNumber regNumber) throws IllegalArgument;
+
+    Future<List<PolicyVehicle>> fetchAllByVINCodeAsync(String vinCode) throws IllegalArgument;
+
+    Future<PolicyVehicle> fetchFirstByVINCodeAsync(String vinCode) throws IllegalArgument, PolicyVehicleNotFound;
+
+    Future<PolicyVehicle> fetchFirstByRegNumberAsync(VehicleRegNumber regNumber)
+            throws IllegalArgument, PolicyVehicleNotFound;
+
+    Future<PolicyVehicle> fetchLastByRegNumberAsync(VehicleRegNumber regNumber)
+            throws IllegalArgument, PolicyVehicleNotFound;
+
+    Future<PolicyVehicle> fetchFirstByRegNumberOrDefaultAsync(VehicleRegNumber regNumber) throws IllegalArgument;
+
+    Future<PolicyVehicle> fetchLastByRegNumberOrDefaultAsync(VehicleRegNumber regNumber) throws IllegalArgument;
+}
@@ -0,0 +1,32 @@
+package tech.lapsa.insurance.facade;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.lapsa.insurance.domain.policy.PolicyDriver;
+import com.lapsa.insurance.domain.policy.PolicyVehicle;
+
+public final class QuotePrefill implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<PolicyDriver> drivers;
+    private final List<PolicyVehicle> vehicles;
+
+    public QuotePrefill(final List<PolicyDriver> drivers, final List<PolicyVehicle> vehicles) {
+        this.drivers = Collections.unmodifiableList(new ArrayList<>(drivers));
+        this.vehicles = Collections.unmodifiableList(new ArrayList<>(vehicles));
+    }
+
+    // in the order of the requested taxpayer numbers
+    public List<PolicyDriver> getDrivers() {
+        return drivers;
+    }
+
+    // in the order of the requested reg numbers
+    public List<PolicyVehicle> getVehicles() {
+        return vehicles;
+    }
+}
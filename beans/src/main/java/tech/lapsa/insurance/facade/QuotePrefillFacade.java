@@ -0,0 +1,26 @@
+package tech.lapsa.insurance.facade;
+
+import java.util.List;
+
+import javax.ejb.Local;
+import javax.ejb.Remote;
+
+import tech.lapsa.java.commons.exceptions.IllegalArgument;
+import tech.lapsa.kz.taxpayer.TaxpayerNumber;
+import tech.lapsa.kz.vehicle.VehicleRegNumber;
+
+public interface QuotePrefillFacade {
+
+    public static final String BEAN_NAME = "QuotePrefillFacadeBean";
+
+    @Local
+    public interface QuotePrefillFacadeLocal extends QuotePrefillFacade {
+    }
+
+    @Remote
+    public interface QuotePrefillFacadeRemote extends QuotePrefillFacade {
+    }
+
+    QuotePrefill prefill(List<TaxpayerNumber> taxpayerNumbers, List<VehicleRegNumber> regNumbers)
+            throws IllegalArgument;
+}
@@ -0,0 +1,31 @@
+package tech.lapsa.insurance.facade;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+public final class RequestComment implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final LocalDateTime timestamp;
+    private final String userName;
+    private final String message;
+
+    public RequestComment(final LocalDateTime timestamp, final String userName, final String message) {
+        this.timestamp = timestamp;
+        this.userName = userName;
+        this.message = message;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,31 @@
+package tech.lapsa.insurance.facade;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+public final class RequestCommentBatchResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Set<Integer> commented;
+    private final Map<Integer, String> failed;
+
+    public RequestCommentBatchResult(final Set<Integer> commented, final Map<Integer, String> failed) {
+        this.commented = Collections.unmodifiableSet(new LinkedHashSet<>(commented));
+        this.failed = Collections.unmodifiableMap(new LinkedHashMap<>(failed));
+    }
+
+    // request ids the comment is added to
+    public Set<Integer> getCommented() {
+        return commented;
+    }
+
+    // request ids the comment is not added to with the failure reason
+    public Map<Integer, String> getFailed() {
+        return failed;
+    }
+}
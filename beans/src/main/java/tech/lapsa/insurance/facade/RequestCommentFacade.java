@@ -0,0 +1,30 @@
+package tech.lapsa.insurance.facade;
+
+import java.util.List;
+
+import javax.ejb.Local;
+import javax.ejb.Remote;
+
+import com.lapsa.insurance.domain.crm.User;
+
+import tech.lapsa.java.commons.exceptions.IllegalArgument;
+import tech.lapsa.java.commons.exceptions.IllegalState;
+
+public interface RequestCommentFacade {
+
+    public static final String BEAN_NAME = RequestFacade.BEAN_NAME;
+
+    @Local
+    public interface RequestCommentFacadeLocal extends RequestCommentFacade {
+    }
+
+    @Remote
+    public interface RequestCommentFacadeRemote extends RequestCommentFacade {
+    }
+
+    // comments of the request note by the request id, the newest first
+    List<RequestComment> getComments(Integer id) throws IllegalState, IllegalArgument;
+
+    // adds the same comment to every request by its id
+    RequestCommentBatchResult commentRequests(List<Integer> ids, User user, String message) throws IllegalArgument;
+}
@@ -0,0 +1,31 @@
+package tech.lapsa.insurance.facade;
+
+import javax.ejb.Local;
+import javax.ejb.Remote;
+
+import tech.lapsa.java.commons.exceptions.IllegalArgument;
+
+public interface UserListFacade {
+
+    public static final String BEAN_NAME = UserFacade.BEAN_NAME;
+
+    @Local
+    public interface UserListFacadeLocal extends UserListFacade {
+    }
+
+    @Remote
+    public interface UserListFacadeRemote extends UserListFacade {
+    }
+
+    public static enum UserList {
+        ALL,
+        VISIBLE,
+        WHO_EVER_CREATED_REQUESTS,
+        WHO_EVER_PICKED_REQUESTS,
+        WHO_EVER_COMPLETED_REQUESTS;
+    }
+
+    // users ordered by id, afterId is the cursor returned with the previous
+    // page or null for the first one
+    UserSummaryPage getPage(UserList list, Integer afterId, Integer limit) throws IllegalArgument;
+}
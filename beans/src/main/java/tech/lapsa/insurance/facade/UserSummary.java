@@ -0,0 +1,30 @@
+package tech.lapsa.insurance.facade;
+
+import java.io.Serializable;
+
+public final class UserSummary implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Integer id;
+    private final String name;
+    private final String login;
+
+    public UserSummary(final Integer id, final String name, final String login) {
+        this.id = id;
+        this.name = name;
+        this.login = login;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+}
@@ -0,0 +1,29 @@
+package tech.lapsa.insurance.facade;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+public final class UserSummaryPage implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<UserSummary> users;
+    private final Integer nextAfterId;
+
+    public UserSummaryPage(final List<UserSummary> users, final Integer nextAfterId) {
+        this.users = Collections.unmodifiableList(new ArrayList<>(users));
+        this.nextAfterId = nextAfterId;
+    }
+
+    public List<UserSummary> getUsers() {
+        return users;
+    }
+
+    // the cursor of the next page, empty if this page is the last one
+    public Optional<Integer> getNextAfterId() {
+        return Optional.ofNullable(nextAfterId);
+    }
+}
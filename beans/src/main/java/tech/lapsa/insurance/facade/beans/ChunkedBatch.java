@@ -0,0 +1,75 @@
+package tech.lapsa.insurance.facade.beans;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import javax.ejb.EJBException;
+
+import tech.lapsa.java.commons.logging.MyLogger;
+
+// runs the batch chunk by chunk, the chunk function is expected to run in its
+// own transaction (REQUIRES_NEW through the business object) so the failure of
+// the one does not roll back the others, the rolled back chunk is retried item
+// by item to find the failed ones
+//
+// items are deduplicated by the key, the first one wins
+final class ChunkedBatch<K> {
+
+    private final Set<K> done = new LinkedHashSet<>();
+    private final Map<K, String> failed = new LinkedHashMap<>();
+
+    private ChunkedBatch() {
+    }
+
+    Set<K> getDone() {
+        return done;
+    }
+
+    Map<K, String> getFailed() {
+        return failed;
+    }
+
+    // the chunk function returns the keys of the items failed without rolling
+    // the chunk back, with the failure reason
+    static <T, K> ChunkedBatch<K> run(final List<T> items, final int chunkSize, final Function<T, K> keyOf,
+            final Function<List<T>, Map<K, String>> chunkFunction, final MyLogger logger) {
+        final Map<K, T> unique = new LinkedHashMap<>();
+        items.forEach(it -> unique.putIfAbsent(keyOf.apply(it), it));
+        final List<T> distinct = new ArrayList<>(unique.values());
+
+        final ChunkedBatch<K> batch = new ChunkedBatch<>();
+        for (int from = 0; from < distinct.size(); from += chunkSize) {
+            final List<T> chunk = distinct.subList(from, Math.min(from + chunkSize, distinct.size()));
+            try {
+                batch.collect(chunk, keyOf, chunkFunction.apply(chunk));
+            } catch (final EJBException e) {
+                logger.WARNING.log("Chunk of %1$s rolled back, retrying one by one: %2$s", chunk.size(),
+                        e.getMessage());
+                for (final T item : chunk)
+                    try {
+                        final List<T> single = Collections.singletonList(item);
+                        batch.collect(single, keyOf, chunkFunction.apply(single));
+                    } catch (final EJBException e1) {
+                        batch.failed.put(keyOf.apply(item), e1.getMessage());
+                    }
+            }
+        }
+        return batch;
+    }
+
+    // PRIVATE
+
+    private <T> void collect(final List<T> chunk, final Function<T, K> keyOf, final Map<K, String> chunkFailed) {
+        chunk.stream() //
+                .map(keyOf) //
+                .filter(key -> !chunkFailed.containsKey(key)) //
+                .forEach(done::add);
+        failed.putAll(chunkFailed);
+    }
+}
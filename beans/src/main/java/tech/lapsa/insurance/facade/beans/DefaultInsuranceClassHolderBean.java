@@ -0,0 +1,65 @@
+package tech.lapsa.insurance.facade.beans;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.EJBException;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+
+import com.lapsa.insurance.elements.InsuranceClassType;
+
+import tech.lapsa.java.commons.logging.MyLogger;
+
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class DefaultInsuranceClassHolderBean {
+
+    @EJB
+    private EsbdGuardsBean esbd;
+
+    private volatile InsuranceClassType defaultInsuranceClass;
+
+    @PostConstruct
+    public void init() {
+        try {
+            refresh();
+        } catch (final EJBException e) {
+            // ESBD may be unavailable at startup, it will be loaded on demand
+            logger.WARNING.log("Default insurance class is not loaded on startup: %1$s", e.getMessage());
+        }
+    }
+
+    public InsuranceClassType get() {
+        final InsuranceClassType loaded = defaultInsuranceClass;
+        if (loaded != null)
+            return loaded;
+        refresh();
+        return defaultInsuranceClass;
+    }
+
+    public void refresh() {
+        try (final FacadeMetricsRegistry.Timer t = FacadeMetricsRegistry.downstream("esbd.InsuranceClassTypeService")) {
+            defaultInsuranceClass = esbd.getInsuranceClassTypeService().getDefault();
+        }
+    }
+
+    @Schedule(hour = "*", minute = "0", persistent = false)
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (final EJBException e) {
+            logger.WARNING.log("Default insurance class refresh failed, keeping %1$s: %2$s", defaultInsuranceClass,
+                    e.getMessage());
+        }
+    }
+
+    // PRIVATE
+
+    private final MyLogger logger = MyLogger.newBuilder() //
+            .withNameOf(DefaultInsuranceClassHolderBean.class) //
+            .build();
+}
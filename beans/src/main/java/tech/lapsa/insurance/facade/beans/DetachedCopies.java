@@ -0,0 +1,68 @@
+package tech.lapsa.insurance.facade.beans;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+
+import javax.ejb.EJBException;
+
+import com.lapsa.insurance.domain.crm.User;
+
+import tech.lapsa.java.commons.function.MyObjects;
+
+// the domain entities are mutable so the shared ones are kept serialized and
+// every caller gets the own copy
+final class DetachedCopies {
+
+    private DetachedCopies() {
+    }
+
+    static byte[] serialize(final Serializable value) {
+        MyObjects.requireNonNull(value, "value");
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        } catch (final IOException e) {
+            throw new EJBException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T deserialize(final byte[] bytes) {
+        try (final ObjectInputStream in = new DomainObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (T) in.readObject();
+        } catch (final IOException | ClassNotFoundException e) {
+            throw new EJBException(e);
+        }
+    }
+
+    static <T extends Serializable> T copyOf(final T value) {
+        return deserialize(serialize(value));
+    }
+
+    // PRIVATE
+
+    // resolves the classes with the loader of the domain, the default one of the
+    // stream may not see them in the container
+    private static final class DomainObjectInputStream extends ObjectInputStream {
+
+        private DomainObjectInputStream(final InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            try {
+                return Class.forName(desc.getName(), false, User.class.getClassLoader());
+            } catch (final ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+    }
+}
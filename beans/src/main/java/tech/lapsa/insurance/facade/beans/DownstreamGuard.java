@@ -0,0 +1,157 @@
+package tech.lapsa.insurance.facade.beans;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import tech.lapsa.insurance.facade.DownstreamUnavailable;
+import tech.lapsa.java.commons.function.MyNumbers;
+import tech.lapsa.java.commons.function.MyObjects;
+import tech.lapsa.java.commons.function.MyStrings;
+
+// bulkhead and circuit breaker of the single downstream dependency
+//
+// the bulkhead bounds the number of concurrent calls, the breaker opens after
+// the number of consecutive failures (runtime exceptions and too slow calls,
+// checked exceptions are answers), fails fast while open and lets the single
+// trial call through once the open period is over, only the trial closes it
+final class DownstreamGuard {
+
+    static enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN;
+    }
+
+    private final String name;
+    private final Semaphore bulkhead;
+    private final long acquireTimeoutNanos;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final long slowCallNanos;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong shortCircuited = new AtomicLong();
+
+    DownstreamGuard(final String name, final int maxConcurrent, final Duration acquireTimeout,
+            final int failureThreshold, final Duration open, final Duration slowCall) {
+        this.name = MyStrings.requireNonEmpty(name, "name");
+        this.bulkhead = new Semaphore(MyNumbers.requirePositive(maxConcurrent, "maxConcurrent"), true);
+        this.acquireTimeoutNanos = MyObjects.requireNonNull(acquireTimeout, "acquireTimeout").toNanos();
+        this.failureThreshold = MyNumbers.requirePositive(failureThreshold, "failureThreshold");
+        this.openNanos = MyObjects.requireNonNull(open, "open").toNanos();
+        this.slowCallNanos = MyObjects.requireNonNull(slowCall, "slowCall").toNanos();
+    }
+
+    // every call of the interface method on the returned proxy is guarded
+    @SuppressWarnings("unchecked")
+    <T> T wrap(final Class<T> type, final T target) {
+        MyObjects.requireNonNull(type, "type");
+        MyObjects.requireNonNull(target, "target");
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class)
+                return method.invoke(target, args);
+            final boolean trial = enter();
+            final long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                final Object result = method.invoke(target, args);
+                failed = false;
+                return result;
+            } catch (final InvocationTargetException e) {
+                final Throwable cause = e.getCause();
+                failed = cause instanceof RuntimeException || cause instanceof Error;
+                throw cause;
+            } finally {
+                leave(trial, failed || System.nanoTime() - start > slowCallNanos);
+            }
+        });
+    }
+
+    String getName() {
+        return name;
+    }
+
+    State getState() {
+        return state.get();
+    }
+
+    long getCalls() {
+        return calls.get();
+    }
+
+    long getFailures() {
+        return failures.get();
+    }
+
+    long getRejected() {
+        return rejected.get();
+    }
+
+    long getShortCircuited() {
+        return shortCircuited.get();
+    }
+
+    // PRIVATE
+
+    // returns true for the trial call of the half-open circuit
+    private boolean enter() throws DownstreamUnavailable {
+        final State s = state.get();
+        if (s == State.HALF_OPEN
+                || s == State.OPEN && (System.nanoTime() - openedAt < openNanos
+                        || !state.compareAndSet(State.OPEN, State.HALF_OPEN))) {
+            shortCircuited.incrementAndGet();
+            throw new DownstreamUnavailable(MyStrings.format("%1$s circuit is open", name));
+        }
+        final boolean trial = s == State.OPEN;
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            // the trial call did not happen, let the next caller try
+            if (trial)
+                state.compareAndSet(State.HALF_OPEN, State.OPEN);
+            rejected.incrementAndGet();
+            throw new DownstreamUnavailable(MyStrings.format("%1$s bulkhead is full", name));
+        }
+        calls.incrementAndGet();
+        return trial;
+    }
+
+    // the calls started before the circuit opened don't change its state
+    // whatever their outcome is
+    private void leave(final boolean trial, final boolean failed) {
+        bulkhead.release();
+        if (!failed) {
+            consecutiveFailures.set(0);
+            if (trial)
+                state.compareAndSet(State.HALF_OPEN, State.CLOSED);
+            return;
+        }
+        failures.incrementAndGet();
+        if (trial) {
+            openedAt = System.nanoTime();
+            state.compareAndSet(State.HALF_OPEN, State.OPEN);
+            return;
+        }
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold && state.get() == State.CLOSED) {
+            openedAt = System.nanoTime();
+            state.compareAndSet(State.CLOSED, State.OPEN);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package tech.lapsa.insurance.facade.beans;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+
+import tech.lapsa.esbd.dao.elements.InsuranceClassTypeService.InsuranceClassTypeServiceRemote;
+import tech.lapsa.esbd.dao.entities.PolicyEntityService.PolicyEntityServiceRemote;
+import tech.lapsa.esbd.dao.entities.SubjectPersonEntityService.SubjectPersonEntityServiceRemote;
+import tech.lapsa.esbd.dao.entities.VehicleEntityService.VehicleEntityServiceRemote;
+
+// ESBD services guarded by the per service bulkhead and circuit breaker so the
+// slow ESBD holds no more than max-concurrent container threads per service
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class EsbdGuardsBean {
+
+    @Resource(name = "insurance-facade/esbd-guard/max-concurrent")
+    private Integer maxConcurrent = 16;
+
+    @Resource(name = "insurance-facade/esbd-guard/acquire-timeout-millis")
+    private Integer acquireTimeoutMillis = 200;
+
+    @Resource(name = "insurance-facade/esbd-guard/failure-threshold")
+    private Integer failureThreshold = 5;
+
+    @Resource(name = "insurance-facade/esbd-guard/open-seconds")
+    private Integer openSeconds = 30;
+
+    @Resource(name = "insurance-facade/esbd-guard/slow-call-millis")
+    private Integer slowCallMillis = 10_000;
+
+    @EJB
+    private SubjectPersonEntityServiceRemote subjectPersonServiceRemote;
+
+    @EJB
+    private VehicleEntityServiceRemote vehicleServiceRemote;
+
+    @EJB
+    private PolicyEntityServiceRemote policyServiceRemote;
+
+    @EJB
+    private InsuranceClassTypeServiceRemote insuranceClassTypeServiceRemote;
+
+    private DownstreamGuard subjectPersonGuard;
+    private DownstreamGuard vehicleGuard;
+    private DownstreamGuard policyGuard;
+    private DownstreamGuard insuranceClassTypeGuard;
+
+    private SubjectPersonEntityServiceRemote subjectPersonService;
+    private VehicleEntityServiceRemote vehicleService;
+    private PolicyEntityServiceRemote policyService;
+    private InsuranceClassTypeServiceRemote insuranceClassTypeService;
+
+    @PostConstruct
+    public void init() {
+        subjectPersonGuard = newGuard("SubjectPersonEntityService");
+        vehicleGuard = newGuard("VehicleEntityService");
+        policyGuard = newGuard("PolicyEntityService");
+        insuranceClassTypeGuard = newGuard("InsuranceClassTypeService");
+
+        subjectPersonService = subjectPersonGuard.wrap(SubjectPersonEntityServiceRemote.class,
+                subjectPersonServiceRemote);
+        vehicleService = vehicleGuard.wrap(VehicleEntityServiceRemote.class, vehicleServiceRemote);
+        policyService = policyGuard.wrap(PolicyEntityServiceRemote.class, policyServiceRemote);
+        insuranceClassTypeService = insuranceClassTypeGuard.wrap(InsuranceClassTypeServiceRemote.class,
+                insuranceClassTypeServiceRemote);
+    }
+
+    public SubjectPersonEntityServiceRemote getSubjectPersonService() {
+        return subjectPersonService;
+    }
+
+    public VehicleEntityServiceRemote getVehicleService() {
+        return vehicleService;
+    }
+
+    public PolicyEntityServiceRemote getPolicyService() {
+        return policyService;
+    }
+
+    public InsuranceClassTypeServiceRemote getInsuranceClassTypeService() {
+        return insuranceClassTypeService;
+    }
+
+    // STATS
+
+    public List<GuardSnapshot> getSnapshots() {
+        return Arrays.asList(subjectPersonGuard, vehicleGuard, policyGuard, insuranceClassTypeGuard).stream() //
+                .map(GuardSnapshot::new) //
+                .collect(Collectors.toList());
+    }
+
+    public static final class GuardSnapshot {
+
+        private final String name;
+        private final String state;
+        private final long calls;
+        private final long failures;
+        private final long rejected;
+        private final long shortCircuited;
+
+        private GuardSnapshot(final DownstreamGuard guard) {
+            this.name = guard.getName();
+            this.state = guard.getState().name();
+            this.calls = guard.getCalls();
+            this.failures = guard.getFailures();
+            this.rejected = guard.getRejected();
+            this.shortCircuited = guard.getShortCircuited();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // CLOSED, OPEN or HALF_OPEN
+        public String getState() {
+            return state;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getShortCircuited() {
+            return shortCircuited;
+        }
+    }
+
+    // PRIVATE
+
+    private DownstreamGuard newGuard(final String name) {
+        return new DownstreamGuard(name, maxConcurrent, Duration.ofMillis(acquireTimeoutMillis), failureThreshold,
+                Duration.ofSeconds(openSeconds), Duration.ofMillis(slowCallMillis));
+    }
+}
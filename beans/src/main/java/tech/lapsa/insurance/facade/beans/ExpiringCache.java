@@ -0,0 +1,260 @@
+package tech.lapsa.insurance.facade.beans;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import tech.lapsa.java.commons.function.MyNumbers;
+import tech.lapsa.java.commons.function.MyObjects;
+
+// bounded LRU cache with per-entry TTL, empty results are cached with their
+// own (negative) TTL
+//
+// concurrent misses of the same key share the single load
+//
+// expired entries are kept for the stale window to be served by
+// getStaleOrRefresh while the caller refreshes them
+final class ExpiringCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final long staleNanos;
+
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private final ConcurrentMap<K, CompletableFuture<Optional<V>>> loading = new ConcurrentHashMap<>();
+
+    // keys of the dispatched refreshes with the dispatch time
+    private final ConcurrentMap<K, Long> refreshing = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+
+    ExpiringCache(final int maxSize, final Duration ttl, final Duration negativeTtl) {
+        this(maxSize, ttl, negativeTtl, Duration.ZERO);
+    }
+
+    ExpiringCache(final int maxSize, final Duration ttl, final Duration negativeTtl, final Duration stale) {
+        this.maxSize = MyNumbers.requirePositive(maxSize, "maxSize");
+        this.ttlNanos = MyObjects.requireNonNull(ttl, "ttl").toNanos();
+        this.negativeTtlNanos = MyObjects.requireNonNull(negativeTtl, "negativeTtl").toNanos();
+        this.staleNanos = MyObjects.requireNonNull(stale, "stale").toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    Optional<V> getOrLoad(final K key, final Function<K, Optional<V>> loader) {
+        MyObjects.requireNonNull(key, "key");
+        MyObjects.requireNonNull(loader, "loader");
+
+        final Optional<Optional<V>> cached = getIfPresent(key);
+        if (cached.isPresent())
+            return cached.get();
+
+        final CompletableFuture<Optional<V>> mine = new CompletableFuture<>();
+        final CompletableFuture<Optional<V>> running = loading.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return await(running);
+        }
+
+        try {
+            // the load may have been finished just before this one registered
+            final Optional<Optional<V>> loadedMeanwhile = peek(key);
+            final Optional<V> loaded = loadedMeanwhile.isPresent() ? loadedMeanwhile.get()
+                    : MyObjects.requireNonNull(loader.apply(key), "loaded");
+            if (!loadedMeanwhile.isPresent())
+                put(key, loaded);
+            mine.complete(loaded);
+            return loaded;
+        } catch (final RuntimeException | Error e) {
+            // the failure is shared by the waiting callers but not cached
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, mine);
+        }
+    }
+
+    Optional<Optional<V>> getIfPresent(final K key) {
+        final long now = System.nanoTime();
+        synchronized (entries) {
+            final Entry<V> e = entries.get(key);
+            if (e != null && e.expiresAt - now > 0) {
+                hits.incrementAndGet();
+                return Optional.of(e.value);
+            }
+            if (e != null && e.expiresAt + staleNanos - now <= 0) {
+                entries.remove(key);
+                expirations.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    // never loads, the refresh is called when the entry is expired or missing
+    // and no load or refresh of the key is running yet, the expired value is
+    // still returned within the stale window
+    //
+    // the refresh is expected to call refresh(K, Function) which releases the
+    // key once done
+    Optional<Optional<V>> getStaleOrRefresh(final K key, final Consumer<K> refresh) {
+        MyObjects.requireNonNull(key, "key");
+        MyObjects.requireNonNull(refresh, "refresh");
+
+        final long now = System.nanoTime();
+        final Entry<V> e;
+        synchronized (entries) {
+            e = entries.get(key);
+        }
+        if (e != null && e.expiresAt - now > 0) {
+            hits.incrementAndGet();
+            return Optional.of(e.value);
+        }
+
+        if (!loading.containsKey(key) && reserveRefresh(key, now)) {
+            refreshes.incrementAndGet();
+            try {
+                refresh.accept(key);
+            } catch (final RuntimeException | Error x) {
+                refreshing.remove(key, now);
+                throw x;
+            }
+        }
+
+        if (e != null && e.expiresAt + staleNanos - now > 0) {
+            staleHits.incrementAndGet();
+            return Optional.of(e.value);
+        }
+        misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    void put(final K key, final Optional<V> value) {
+        MyObjects.requireNonNull(key, "key");
+        MyObjects.requireNonNull(value, "value");
+        final long now = System.nanoTime();
+        final Entry<V> e = new Entry<>(value, now + (value.isPresent() ? ttlNanos : negativeTtlNanos));
+        synchronized (entries) {
+            entries.put(key, e);
+            evictOverflow();
+        }
+    }
+
+    void invalidate(final K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    long hits() {
+        return hits.get();
+    }
+
+    long misses() {
+        return misses.get();
+    }
+
+    long evictions() {
+        return evictions.get();
+    }
+
+    long expirations() {
+        return expirations.get();
+    }
+
+    void refresh(final K key, final Function<K, Optional<V>> loader) {
+        try {
+            getOrLoad(key, loader);
+        } finally {
+            refreshing.remove(key);
+        }
+    }
+
+    long coalesced() {
+        return coalesced.get();
+    }
+
+    long staleHits() {
+        return staleHits.get();
+    }
+
+    long refreshes() {
+        return refreshes.get();
+    }
+
+    // PRIVATE
+
+    // the reservation of the refresh that never ran is taken over after the TTL
+    private boolean reserveRefresh(final K key, final long now) {
+        final Long reservedAt = refreshing.putIfAbsent(key, now);
+        return reservedAt == null || now - reservedAt > ttlNanos && refreshing.replace(key, reservedAt, now);
+    }
+
+    private Optional<Optional<V>> peek(final K key) {
+        final long now = System.nanoTime();
+        synchronized (entries) {
+            final Entry<V> e = entries.get(key);
+            return e != null && e.expiresAt - now > 0 ? Optional.of(e.value) : Optional.empty();
+        }
+    }
+
+    private static <V> Optional<V> await(final CompletableFuture<Optional<V>> running) {
+        try {
+            return running.join();
+        } catch (final CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw e;
+        }
+    }
+
+    private void evictOverflow() {
+        final Iterator<K> lru = entries.keySet().iterator();
+        while (entries.size() > maxSize && lru.hasNext()) {
+            lru.next();
+            lru.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static final class Entry<V> {
+
+        private final Optional<V> value;
+        private final long expiresAt;
+
+        private Entry(final Optional<V> value, final long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
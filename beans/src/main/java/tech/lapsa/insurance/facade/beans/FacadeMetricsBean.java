@@ -0,0 +1,200 @@
+package tech.lapsa.insurance.facade.beans;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.LocalBean;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import tech.lapsa.insurance.facade.FacadeMetrics;
+import tech.lapsa.insurance.facade.FacadeMetrics.FacadeMetricsLocal;
+import tech.lapsa.insurance.facade.FacadeMetrics.FacadeMetricsRemote;
+import tech.lapsa.insurance.facade.FacadeMetricsMXBean;
+import tech.lapsa.insurance.facade.beans.EsbdGuardsBean.GuardSnapshot;
+import tech.lapsa.java.commons.logging.MyLogger;
+
+// per facade method and per downstream call latency histograms and error
+// counters of FacadeMetricsRegistry, exposed via JMX and as the text scrape
+@Singleton(name = FacadeMetrics.BEAN_NAME)
+@Startup
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class FacadeMetricsBean implements FacadeMetricsLocal, FacadeMetricsRemote {
+
+    @EJB
+    private PolicyDriverCacheBean driverCache;
+
+    @EJB
+    private PolicyVehicleCacheBean vehicleCache;
+
+    @EJB
+    private PrincipalUserCacheBean principalUsers;
+
+    @EJB
+    private NotificatorPoolBean notificators;
+
+    @EJB
+    private NotificationDispatcherBean dispatcher;
+
+    @EJB
+    private EsbdGuardsBean esbdGuards;
+
+    private ObjectName objectName;
+
+    @PostConstruct
+    public void init() {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            objectName = new ObjectName(FacadeMetricsMXBean.OBJECT_NAME);
+            if (server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+            server.registerMBean(new MXBean(), objectName);
+        } catch (final JMException e) {
+            // metrics are still available via scrape()
+            logger.WARNING.log("Facade metrics MBean is not registered: %1$s", e.getMessage());
+            objectName = null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (objectName == null)
+            return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (final JMException e) {
+            logger.WARNING.log("Facade metrics MBean is not unregistered: %1$s", e.getMessage());
+        }
+    }
+
+    @Override
+    public String scrape() {
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append("# TYPE insurance_facade_method_seconds histogram\n");
+        new TreeMap<>(FacadeMetricsRegistry.methods()).forEach((method, h) -> h.render(sb,
+                "insurance_facade_method_seconds", "method=\"" + method + "\""));
+
+        sb.append("# TYPE insurance_facade_downstream_seconds histogram\n");
+        new TreeMap<>(FacadeMetricsRegistry.downstreams()).forEach((call, h) -> h.render(sb,
+                "insurance_facade_downstream_seconds", "call=\"" + call + "\""));
+
+        sb.append("# TYPE insurance_facade_method_errors_total counter\n");
+        new TreeMap<>(FacadeMetricsRegistry.errors()).forEach((key, n) -> {
+            final String[] methodAndException = key.split("\\|", 2);
+            sb.append("insurance_facade_method_errors_total{method=\"").append(methodAndException[0])
+                    .append("\",exception=\"").append(methodAndException[1]).append("\"} ").append(n.sum())
+                    .append('\n');
+        });
+
+        sb.append("# TYPE insurance_facade_cache_size gauge\n");
+        sample(sb, "insurance_facade_cache_size", "cache=\"policy-driver\"", driverCache.getSize());
+        sample(sb, "insurance_facade_cache_size", "cache=\"policy-vehicle\"", vehicleCache.getSize());
+        sample(sb, "insurance_facade_cache_size", "cache=\"principal-user\"", principalUsers.getSize());
+        sb.append("# TYPE insurance_facade_cache_hits_total counter\n");
+        sample(sb, "insurance_facade_cache_hits_total", "cache=\"policy-driver\"", driverCache.getHits());
+        sample(sb, "insurance_facade_cache_hits_total", "cache=\"policy-vehicle\"", vehicleCache.getHits());
+        sample(sb, "insurance_facade_cache_hits_total", "cache=\"principal-user\"", principalUsers.getHits());
+        sb.append("# TYPE insurance_facade_cache_misses_total counter\n");
+        sample(sb, "insurance_facade_cache_misses_total", "cache=\"policy-driver\"", driverCache.getMisses());
+        sample(sb, "insurance_facade_cache_misses_total", "cache=\"policy-vehicle\"", vehicleCache.getMisses());
+        sample(sb, "insurance_facade_cache_misses_total", "cache=\"principal-user\"", principalUsers.getMisses());
+        sb.append("# TYPE insurance_facade_cache_coalesced_total counter\n");
+        sample(sb, "insurance_facade_cache_coalesced_total", "cache=\"policy-driver\"", driverCache.getCoalesced());
+        sample(sb, "insurance_facade_cache_coalesced_total", "cache=\"policy-vehicle\"",
+                vehicleCache.getCoalesced());
+        sb.append("# TYPE insurance_facade_cache_stale_hits_total counter\n");
+        sample(sb, "insurance_facade_cache_stale_hits_total", "cache=\"policy-driver\"", driverCache.getStaleHits());
+        sample(sb, "insurance_facade_cache_stale_hits_total", "cache=\"policy-vehicle\"",
+                vehicleCache.getStaleHits());
+        sb.append("# TYPE insurance_facade_cache_refreshes_total counter\n");
+        sample(sb, "insurance_facade_cache_refreshes_total", "cache=\"policy-driver\"", driverCache.getRefreshes());
+        sample(sb, "insurance_facade_cache_refreshes_total", "cache=\"policy-vehicle\"",
+                vehicleCache.getRefreshes());
+
+        sb.append("# TYPE insurance_facade_notificators_total counter\n");
+        sample(sb, "insurance_facade_notificators_total", "event=\"created\"", notificators.getCreations());
+        sample(sb, "insurance_facade_notificators_total", "event=\"reused\"", notificators.getReuses());
+
+        sb.append("# TYPE insurance_facade_notification_queue_size gauge\n");
+        sample(sb, "insurance_facade_notification_queue_size", null, dispatcher.getQueueSize());
+        sb.append("# TYPE insurance_facade_notifications_total counter\n");
+        sample(sb, "insurance_facade_notifications_total", "result=\"sent\"", dispatcher.getSent());
+        sample(sb, "insurance_facade_notifications_total", "result=\"retried\"", dispatcher.getRetried());
+        sample(sb, "insurance_facade_notifications_total", "result=\"dropped\"", dispatcher.getDropped());
+
+        final List<GuardSnapshot> guards = esbdGuards.getSnapshots();
+        sb.append("# TYPE insurance_facade_esbd_circuit_open gauge\n");
+        guards.forEach(g -> sample(sb, "insurance_facade_esbd_circuit_open", "service=\"" + g.getName() + "\"",
+                "CLOSED".equals(g.getState()) ? 0 : 1));
+        sb.append("# TYPE insurance_facade_esbd_calls_total counter\n");
+        guards.forEach(g -> {
+            final String service = "service=\"" + g.getName() + "\"";
+            sample(sb, "insurance_facade_esbd_calls_total", service + ",result=\"made\"", g.getCalls());
+            sample(sb, "insurance_facade_esbd_calls_total", service + ",result=\"failed\"", g.getFailures());
+            sample(sb, "insurance_facade_esbd_calls_total", service + ",result=\"rejected\"", g.getRejected());
+            sample(sb, "insurance_facade_esbd_calls_total", service + ",result=\"short-circuited\"",
+                    g.getShortCircuited());
+        });
+
+        return sb.toString();
+    }
+
+    // PRIVATE
+
+    private static void sample(final StringBuilder sb, final String name, final String labels, final long value) {
+        sb.append(name);
+        if (labels != null)
+            sb.append('{').append(labels).append('}');
+        sb.append(' ').append(value).append('\n');
+    }
+
+    private static Map<String, Long> counts(final Map<String, LatencyHistogram> histograms) {
+        final Map<String, Long> counts = new TreeMap<>();
+        histograms.forEach((name, h) -> counts.put(name, h.count()));
+        return counts;
+    }
+
+    private final class MXBean implements FacadeMetricsMXBean {
+
+        @Override
+        public Map<String, Long> getInvocations() {
+            return counts(FacadeMetricsRegistry.methods());
+        }
+
+        @Override
+        public Map<String, Long> getErrors() {
+            final Map<String, Long> counts = new TreeMap<>();
+            FacadeMetricsRegistry.errors().forEach((key, n) -> counts.put(key, n.sum()));
+            return counts;
+        }
+
+        @Override
+        public Map<String, Long> getDownstreamCalls() {
+            return counts(FacadeMetricsRegistry.downstreams());
+        }
+
+        @Override
+        public String scrape() {
+            return FacadeMetricsBean.this.scrape();
+        }
+    }
+
+    private final MyLogger logger = MyLogger.newBuilder() //
+            .withNameOf(FacadeMetricsBean.class) //
+            .build();
+}
@@ -0,0 +1,22 @@
+package tech.lapsa.insurance.facade.beans;
+
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.InvocationContext;
+
+// times every business method of the facade bean it is applied to
+public class FacadeMetricsInterceptor {
+
+    @AroundInvoke
+    public Object around(final InvocationContext ctx) throws Exception {
+        final String method = ctx.getMethod().getDeclaringClass().getSimpleName() + "." + ctx.getMethod().getName();
+        final long start = System.nanoTime();
+        try {
+            return ctx.proceed();
+        } catch (final Exception e) {
+            FacadeMetricsRegistry.error(method, e);
+            throw e;
+        } finally {
+            FacadeMetricsRegistry.method(method, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package tech.lapsa.insurance.facade.beans;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// the latencies and errors are recorded here directly, not through the
+// container, so the timed calls don't pay for the EJB invocation, the
+// FacadeMetricsBean exposes them
+final class FacadeMetricsRegistry {
+
+    private FacadeMetricsRegistry() {
+    }
+
+    private static final ConcurrentMap<String, LatencyHistogram> METHODS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, LatencyHistogram> DOWNSTREAMS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, LongAdder> ERRORS = new ConcurrentHashMap<>();
+
+    static void method(final String method, final long nanos) {
+        METHODS.computeIfAbsent(method, x -> new LatencyHistogram()).record(nanos);
+    }
+
+    static void error(final String method, final Exception e) {
+        ERRORS.computeIfAbsent(method + "|" + e.getClass().getSimpleName(), x -> new LongAdder()).increment();
+    }
+
+    // try (Timer t = FacadeMetricsRegistry.downstream("esbd.PolicyEntityService")) { ... }
+    static Timer downstream(final String call) {
+        return new Timer(DOWNSTREAMS.computeIfAbsent(call, x -> new LatencyHistogram()));
+    }
+
+    static Map<String, LatencyHistogram> methods() {
+        return Collections.unmodifiableMap(METHODS);
+    }
+
+    static Map<String, LatencyHistogram> downstreams() {
+        return Collections.unmodifiableMap(DOWNSTREAMS);
+    }
+
+    static Map<String, LongAdder> errors() {
+        return Collections.unmodifiableMap(ERRORS);
+    }
+
+    static final class Timer implements AutoCloseable {
+
+        private final LatencyHistogram histogram;
+        private final long start = System.nanoTime();
+
+        private Timer(final LatencyHistogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public void close() {
+            histogram.record(System.nanoTime() - start);
+        }
+    }
+}
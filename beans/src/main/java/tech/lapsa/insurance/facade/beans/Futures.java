@@ -0,0 +1,52 @@
+package tech.lapsa.insurance.facade.beans;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import javax.ejb.EJBException;
+
+final class Futures {
+
+    private Futures() {
+    }
+
+    static <T> T await(final Future<T> future) throws EJBException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EJBException(e);
+        } catch (final ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    // waits no longer than till the deadline (System.nanoTime() based) and
+    // cancels the future if it is not done by then
+    static <T> T await(final Future<T> future, final long deadlineNanos, final Supplier<T> onTimeout)
+            throws EJBException {
+        try {
+            return future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (final TimeoutException e) {
+            future.cancel(true);
+            return onTimeout.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EJBException(e);
+        } catch (final ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    static EJBException unwrap(final ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof EJBException)
+            return (EJBException) cause;
+        if (cause instanceof Exception)
+            return new EJBException((Exception) cause);
+        return new EJBException(e);
+    }
+}
@@ -9,15 +9,23 @@ import static com.lapsa.insurance.elements.ProgressStatus.FINISHED;
 import static com.lapsa.insurance.elements.ProgressStatus.NEW;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Currency;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
+import javax.annotation.Resource;
 import javax.ejb.EJB;
 import javax.ejb.EJBException;
+import javax.ejb.LocalBean;
+import javax.ejb.SessionContext;
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
+import javax.interceptor.Interceptors;
 
 import com.lapsa.insurance.domain.InsuranceRequest;
 import com.lapsa.insurance.domain.crm.User;
@@ -31,16 +39,18 @@ import tech.lapsa.epayment.domain.Invoice.InvoiceBuilder;
 import tech.lapsa.epayment.facade.EpaymentFacade.EpaymentFacadeRemote;
 import tech.lapsa.epayment.facade.InvoiceNotFound;
 import tech.lapsa.insurance.dao.InsuranceRequestDAO.InsuranceRequestDAORemote;
-import tech.lapsa.insurance.dao.UserDAO.UserDAORemote;
+import tech.lapsa.insurance.facade.InsuranceRequestBatchFacade.InsuranceRequestBatchFacadeLocal;
+import tech.lapsa.insurance.facade.InsuranceRequestBatchFacade.InsuranceRequestBatchFacadeRemote;
 import tech.lapsa.insurance.facade.InsuranceRequestFacade;
 import tech.lapsa.insurance.facade.InsuranceRequestFacade.InsuranceRequestFacadeLocal;
 import tech.lapsa.insurance.facade.InsuranceRequestFacade.InsuranceRequestFacadeRemote;
+import tech.lapsa.insurance.facade.InvoicePayment;
+import tech.lapsa.insurance.facade.InvoicePaymentBatchResult;
 import tech.lapsa.insurance.facade.NotificationFacade.Notification;
 import tech.lapsa.insurance.facade.NotificationFacade.Notification.NotificationBuilder;
 import tech.lapsa.insurance.facade.NotificationFacade.Notification.NotificationChannel;
 import tech.lapsa.insurance.facade.NotificationFacade.Notification.NotificationEventType;
 import tech.lapsa.insurance.facade.NotificationFacade.Notification.NotificationRecipientType;
-import tech.lapsa.insurance.facade.NotificationFacade.NotificationFacadeLocal;
 import tech.lapsa.java.commons.exceptions.IllegalArgument;
 import tech.lapsa.java.commons.exceptions.IllegalState;
 import tech.lapsa.java.commons.function.MyExceptions;
@@ -52,7 +62,10 @@ import tech.lapsa.kz.taxpayer.TaxpayerNumber;
 import tech.lapsa.patterns.dao.NotFound;
 
 @Stateless(name = InsuranceRequestFacade.BEAN_NAME)
-public class InsuranceRequestFacadeBean implements InsuranceRequestFacadeLocal, InsuranceRequestFacadeRemote {
+@Interceptors(FacadeMetricsInterceptor.class)
+@LocalBean
+public class InsuranceRequestFacadeBean implements InsuranceRequestFacadeLocal, InsuranceRequestFacadeRemote,
+        InsuranceRequestBatchFacadeLocal, InsuranceRequestBatchFacadeRemote {
 
     // READERS
 
@@ -100,10 +113,11 @@ public class InsuranceRequestFacadeBean implements InsuranceRequestFacadeLocal,
             String invoiceProductName, Double invoiceAmount, Integer invoiceQuantity)
             throws IllegalArgument, IllegalState {
         try {
-            final T ir1 = _policyIssued(insuranceRequest, agreementNumber);
-            final T ir2 = _invoiceCreated(ir1, invoicePayeeName, invoiceCurrency, invoiceLanguage, invoicePayeeEmail,
-                    invoicePayeePhone, invoicePayeeTaxpayerNumber, invoiceProductName, invoiceAmount, invoiceQuantity);
-            return ir2;
+            _applyPolicyIssued(insuranceRequest, agreementNumber);
+            _applyInvoiceCreated(insuranceRequest, invoicePayeeName, invoiceCurrency, invoiceLanguage,
+                    invoicePayeeEmail, invoicePayeePhone, invoicePayeeTaxpayerNumber, invoiceProductName, invoiceAmount,
+                    invoiceQuantity);
+            return _save(insuranceRequest);
         } catch (IllegalArgumentException e) {
             throw new IllegalArgument(e);
         } catch (IllegalStateException e) {
@@ -118,10 +132,10 @@ public class InsuranceRequestFacadeBean implements InsuranceRequestFacadeLocal,
             Instant paymentInstant, String paymentCard, String paymentCardBank, String paymentReference,
             String payerName) throws IllegalState, IllegalArgument {
         try {
-            final T ir1 = _policyIssued(insuranceRequest, agreementNumber);
-            final T ir2 = _premiumPaid(ir1, paymentMethodName, paymentInstant, paymentAmount, paymentCurrency,
+            _applyPolicyIssued(insuranceRequest, agreementNumber);
+            _applyPremiumPaid(insuranceRequest, paymentMethodName, paymentInstant, paymentAmount, paymentCurrency,
                     paymentCard, paymentCardBank, paymentReference, payerName, completedBy);
-            return ir2;
+            return _premiumPaidSaved(_save(insuranceRequest));
         } catch (IllegalArgumentException e) {
             throw new IllegalArgument(e);
         } catch (IllegalStateException e) {
@@ -193,6 +207,63 @@ public class InsuranceRequestFacadeBean implements InsuranceRequestFacadeLocal,
         }
     }
 
+    // persisted by chunks of paymentChunkSize payments
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public InvoicePaymentBatchResult invoicesPaidByTheir(final List<InvoicePayment> payments) throws IllegalArgument {
+        try {
+            return _invoicesPaidByTheir(payments);
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgument(e);
+        }
+    }
+
+    // the chunk of invoicesPaidByTheir, see ChunkedBatch
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public Map<Integer, String> invoicesPaidByTheirChunk(final List<InvoicePayment> chunk, final User completedBy) {
+        final Map<Integer, String> failed = new LinkedHashMap<>();
+        final List<Notification> paid = new ArrayList<>(chunk.size());
+        for (final InvoicePayment payment : chunk) {
+            final InsuranceRequest insuranceRequest;
+            try (final FacadeMetricsRegistry.Timer t = FacadeMetricsRegistry.downstream("insurance-dao")) {
+                insuranceRequest = dao.getById(payment.getRequestId());
+            } catch (final IllegalArgument e) {
+                // it should not happen
+                throw new EJBException(e.getMessage());
+            } catch (final NotFound e) {
+                failed.put(payment.getRequestId(), e.getMessage());
+                continue;
+            }
+            try {
+                _applyPremiumPaid(insuranceRequest, payment.getMethodName(), payment.getInstant(),
+                        payment.getAmount(), payment.getCurrency(), payment.getCard(), payment.getCardBank(),
+                        payment.getReference(), payment.getPayerName(), completedBy);
+            } catch (final IllegalArgumentException | IllegalStateException e) {
+                failed.put(payment.getRequestId(), e.getMessage());
+                continue;
+            }
+            final InsuranceRequest ir1 = _save(insuranceRequest);
+            ir1.unlazy();
+            requestUsers.completedBy(completedBy);
+            try {
+                paid.add(_requestPaidNotification(ir1));
+            } catch (final IllegalArgument e) {
+                // it should not happen
+                throw new EJBException(e.getMessage());
+            }
+        }
+        // REQUEST_PAID notifications of the chunk are published together once
+        // it commits so the retry of the rolled back chunk doesn't repeat them
+        if (!paid.isEmpty())
+            try {
+                notifications.sendAllAfterCommit(paid);
+            } catch (final IllegalArgument e) {
+                // it should not happen
+                throw new EJBException(e.getMessage());
+            }
+        return failed;
+    }
+
     @Override
     @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
     public <T extends InsuranceRequest> T requestCanceled(T insuranceRequest, User completedBy,
@@ -223,7 +294,13 @@ public class InsuranceRequestFacadeBean implements InsuranceRequestFacadeLocal,
     // PRIVATE
 
     @EJB
-    private NotificationFacadeLocal notifications;
+    private NotificationDispatcherBean notifications;
+
+    @Resource
+    private SessionContext context;
+
+    @Resource(name = "insurance-facade/payment-batch/chunk-size")
+    private Integer paymentChunkSize = 50;
 
     @EJB
     private InsuranceRequestDAORemote dao;
@@ -241,7 +318,7 @@ public class InsuranceRequestFacadeBean implements InsuranceRequestFacadeLocal,
         insuranceRequest.setInsuranceRequestStatus(PENDING);
 
         final T ir1;
-        try {
+        try (final FacadeMetricsRegistry.Timer t = FacadeMetricsRegistry.downstream("insurance-dao")) {
             ir1 = dao.save(insuranceRequest);
         } catch (final IllegalArgument e) {
             // it should not happens
@@ -304,7 +381,7 @@ public class InsuranceRequestFacadeBean implements InsuranceRequestFacadeLocal,
         insuranceRequest.setAgreementNumber(null);
 
         final T ir1;
-        try {
+        try (final FacadeMetricsRegistry.Timer t = FacadeMetricsRegistry.downstream("insurance-dao")) {
             ir1 = dao.save(insuranceRequest);
         } catch (IllegalArgument e) {
             // it should not happen
@@ -313,11 +390,16 @@ public class InsuranceRequestFacadeBean implements InsuranceRequestFacadeLocal,
 
         _cancelInvoice(ir1);
 
+        requestUsers.completedBy(completedBy);
+
         return ir1;
     }
 
     @EJB
-    private UserDAORemote userDao;
+    private RootUserHolderBean rootUser;
+
+    @EJB
+    private RequestUsersSnapshotBean requestUsers;
 
     private void _premiumPaidById(Integer id, String paymentMethodName, Instant paymentInstant, Double paymentAmount,
             Currency paymentCurrency, String paymentCard, String paymentCardBank, String paymentReference,
@@ -326,7 +408,7 @@ public class InsuranceRequestFacadeBean implements InsuranceRequestFacadeLocal,
         MyObjects.requireNonNull(id, "id");
 
         final InsuranceRequest insuranceRequest;
-        try {
+        try (final FacadeMetricsRegistry.Timer t = FacadeMetricsRegistry.downstream("insurance-dao")) {
             insuranceRequest = dao.getById(id);
         } catch (IllegalArgument e) {
             // it should not happen
@@ -335,22 +417,49 @@ public class InsuranceRequestFacadeBean implements InsuranceRequestFacadeLocal,
             throw new IllegalArgumentException(e.getMessage());
         }
 
-        final User completedBy;
-        try {
-            completedBy = userDao.getById(0);
-        } catch (IllegalArgument | NotFound e) {
-            // it should not happen
-            throw new EJBException(e.getMessage());
-        }
+        final User completedBy = _getRootUser();
 
         _premiumPaid(insuranceRequest, paymentMethodName, paymentInstant, paymentAmount, paymentCurrency, paymentCard,
                 paymentCardBank, paymentReference, payerName, completedBy);
     }
 
+    private User _getRootUser() {
+        return rootUser.get();
+    }
+
+    private InvoicePaymentBatchResult _invoicesPaidByTheir(final List<InvoicePayment> payments)
+            throws IllegalArgumentException {
+        MyObjects.requireNonNull(payments, "payments");
+        payments.forEach(it -> MyObjects.requireNonNull(it, "payment"));
+
+        // resolved once for the whole batch
+        final User completedBy = _getRootUser();
+        final InsuranceRequestFacadeBean self = context.getBusinessObject(InsuranceRequestFacadeBean.class);
+
+        // the request is paid once, repeated payments of it are ignored
+        final ChunkedBatch<Integer> batch = ChunkedBatch.run(payments, paymentChunkSize,
+                InvoicePayment::getRequestId, chunk -> self.invoicesPaidByTheirChunk(chunk, completedBy), logger);
+
+        logger.INFO.log("Payments reconciled %1$s paid %2$s failed", batch.getDone().size(),
+                batch.getFailed().size());
+
+        return new InvoicePaymentBatchResult(batch.getDone(), batch.getFailed());
+    }
+
     private <T extends InsuranceRequest> T _premiumPaid(final T insuranceRequest, final String paymentMethodName,
             final Instant paymentInstant, final Double paymentAmount, final Currency paymentCurrency,
             final String paymentCard, final String paymentCardBank, final String paymentReference,
             final String payerName, final User completedBy) throws IllegalArgumentException, IllegalStateException {
+        _applyPremiumPaid(insuranceRequest, paymentMethodName, paymentInstant, paymentAmount, paymentCurrency,
+                paymentCard, paymentCardBank, paymentReference, payerName, completedBy);
+        return _premiumPaidSaved(_save(insuranceRequest));
+    }
+
+    private <T extends InsuranceRequest> void _applyPremiumPaid(final T insuranceRequest,
+            final String paymentMethodName, final Instant paymentInstant, final Double paymentAmount,
+            final Currency paymentCurrency, final String paymentCard, final String paymentCardBank,
+            final String paymentReference, final String payerName, final User completedBy)
+            throws IllegalArgumentException, IllegalStateException {
 
         MyObjects.requireNonNull(insuranceRequest, "insuranceRequest");
         MyStrings.requireNonEmpty(paymentMethodName, "paymentMethodName");
@@ -375,24 +484,15 @@ public class InsuranceRequestFacadeBean implements InsuranceRequestFacadeLocal,
         insuranceRequest.setReference(paymentReference);
         insuranceRequest.setInstant(paymentInstant);
         insuranceRequest.setPayerName(payerName);
+    }
 
-        final T ir1;
-        try {
-            ir1 = dao.save(insuranceRequest);
-        } catch (final IllegalArgument e) {
-            // it should not happens
-            throw new EJBException(e.getMessage());
-        }
-
+    private <T extends InsuranceRequest> T _premiumPaidSaved(final T ir1) {
         ir1.unlazy();
 
+        requestUsers.completedBy(ir1.getCompletedBy());
+
         try {
-            notifications.send(Notification.builder() //
-                    .withEvent(NotificationEventType.REQUEST_PAID) //
-                    .withChannel(NotificationChannel.EMAIL) //
-                    .forEntity(ir1) //
-                    .withRecipient(NotificationRecipientType.COMPANY) //
-                    .build());
+            notifications.send(_requestPaidNotification(ir1));
         } catch (final IllegalArgument e) {
             // it should not happen
             throw new EJBException(e.getMessage());
@@ -401,13 +501,22 @@ public class InsuranceRequestFacadeBean implements InsuranceRequestFacadeLocal,
         return ir1;
     }
 
+    private Notification _requestPaidNotification(final InsuranceRequest ir1) throws IllegalArgument {
+        return Notification.builder() //
+                .withEvent(NotificationEventType.REQUEST_PAID) //
+                .withChannel(NotificationChannel.EMAIL) //
+                .forEntity(ir1) //
+                .withRecipient(NotificationRecipientType.COMPANY) //
+                .build();
+    }
+
     @EJB
     private EpaymentFacadeRemote epayments;
 
     private <T extends InsuranceRequest> T _markInvoicePaid(T insuranceRequest, Instant paymentInstant) {
         final String invoiceNumber = insuranceRequest.getInvoiceNumber();
         if (MyStrings.nonEmpty(invoiceNumber)) {
-            try {
+            try (final FacadeMetricsRegistry.Timer t = FacadeMetricsRegistry.downstream("epayment")) {
                 epayments.markInvoiceAsPaid(invoiceNumber, paymentInstant);
             } catch (IllegalArgument | IllegalState | InvoiceNotFound e) {
                 // it should not happen
@@ -420,7 +529,7 @@ public class InsuranceRequestFacadeBean implements InsuranceRequestFacadeLocal,
     private <T extends InsuranceRequest> T _cancelInvoice(final T insuranceRequest) {
         final String invoiceNumber = insuranceRequest.getInvoiceNumber();
         if (MyStrings.nonEmpty(invoiceNumber))
-            try {
+            try (final FacadeMetricsRegistry.Timer t = FacadeMetricsRegistry.downstream("epayment")) {
                 epayments.expireInvoice(invoiceNumber);
             } catch (IllegalArgument | IllegalState | InvoiceNotFound e) {
                 // it should not happen
@@ -436,7 +545,7 @@ public class InsuranceRequestFacadeBean implements InsuranceRequestFacadeLocal,
 
         final String invoiceNumber = insuranceRequest.getInvoiceNumber();
         if (MyStrings.nonEmpty(invoiceNumber)) {
-            try {
+            try (final FacadeMetricsRegistry.Timer t = FacadeMetricsRegistry.downstream("epayment")) {
                 epayments.cancelPayment(invoiceNumber, comments);
             } catch (IllegalArgument | IllegalState | InvoiceNotFound e) {
                 // it should not happen
@@ -448,7 +557,7 @@ public class InsuranceRequestFacadeBean implements InsuranceRequestFacadeLocal,
         insuranceRequest.setPaymentCanceledInstant(Instant.now());
 
         final T ir1;
-        try {
+        try (final FacadeMetricsRegistry.Timer t = FacadeMetricsRegistry.downstream("insurance-dao")) {
             ir1 = dao.save(insuranceRequest);
         } catch (final IllegalArgument e) {
             // it should not happens
@@ -462,6 +571,15 @@ public class InsuranceRequestFacadeBean implements InsuranceRequestFacadeLocal,
             Currency invoiceCurrency, LocalizationLanguage invoiceLanguage, String invoicePayeeEmail,
             PhoneNumber invoicePayeePhone, TaxpayerNumber invoicePayeeTaxpayerNumber, String invoiceProductName,
             Double invoiceAmount, Integer invoiceQuantity) throws IllegalArgumentException, IllegalStateException {
+        _applyInvoiceCreated(insuranceRequest, invoicePayeeName, invoiceCurrency, invoiceLanguage, invoicePayeeEmail,
+                invoicePayeePhone, invoicePayeeTaxpayerNumber, invoiceProductName, invoiceAmount, invoiceQuantity);
+        return _save(insuranceRequest);
+    }
+
+    private <T extends InsuranceRequest> void _applyInvoiceCreated(final T insuranceRequest, String invoicePayeeName,
+            Currency invoiceCurrency, LocalizationLanguage invoiceLanguage, String invoicePayeeEmail,
+            PhoneNumber invoicePayeePhone, TaxpayerNumber invoicePayeeTaxpayerNumber, String invoiceProductName,
+            Double invoiceAmount, Integer invoiceQuantity) throws IllegalArgumentException, IllegalStateException {
 
         MyObjects.requireNonNull(insuranceRequest, "insuranceRequest");
         MyObjects.requireNonNull(insuranceRequest.getId(), "insuranceRequest.id");
@@ -484,7 +602,7 @@ public class InsuranceRequestFacadeBean implements InsuranceRequestFacadeLocal,
                         MyNumbers.requirePositive(invoiceAmount, "invoiceAmount"));
 
         final Invoice invoice;
-        try {
+        try (final FacadeMetricsRegistry.Timer t = FacadeMetricsRegistry.downstream("epayment")) {
             invoice = epayments.invoiceAccept(builder);
         } catch (final IllegalArgument e) {
             // it should not happens
@@ -504,16 +622,6 @@ public class InsuranceRequestFacadeBean implements InsuranceRequestFacadeLocal,
         insuranceRequest.setInvoiceLanguage(invoiceLanguage);
 
         insuranceRequest.setInvoiceNumber(invoice.getNumber());
-
-        final T ir1;
-        try {
-            ir1 = dao.save(insuranceRequest);
-        } catch (final IllegalArgument e) {
-            // it should not happens
-            throw new EJBException(e.getMessage());
-        }
-
-        return ir1;
     }
 
     private <T extends InsuranceRequest> void requireInStatus(T insuranceRequest, InsuranceRequestStatus... statuses) {
@@ -527,6 +635,12 @@ public class InsuranceRequestFacadeBean implements InsuranceRequestFacadeLocal,
 
     private <T extends InsuranceRequest> T _policyIssued(T insuranceRequest, String agreementNumber)
             throws IllegalArgumentException, IllegalStateException {
+        _applyPolicyIssued(insuranceRequest, agreementNumber);
+        return _save(insuranceRequest);
+    }
+
+    private <T extends InsuranceRequest> void _applyPolicyIssued(T insuranceRequest, String agreementNumber)
+            throws IllegalArgumentException, IllegalStateException {
 
         MyObjects.requireNonNull(insuranceRequest, "insuranceRequest");
         MyStrings.requireNonEmpty(agreementNumber, "agreementNumber");
@@ -536,16 +650,17 @@ public class InsuranceRequestFacadeBean implements InsuranceRequestFacadeLocal,
         insuranceRequest.setInsuranceRequestStatus(POLICY_ISSUED);
         insuranceRequest.setInsuranceRequestCancellationReason(null);
         insuranceRequest.setAgreementNumber(agreementNumber);
+    }
 
-        final T ir1;
-        try {
-            ir1 = dao.save(insuranceRequest);
-        } catch (IllegalArgument e) {
-            // it should not happen
-            throw new EJBException(e);
+    // transitions are split to _applyXXX and _save so the composite ones
+    // persist the request once
+    private <T extends InsuranceRequest> T _save(final T insuranceRequest) {
+        try (final FacadeMetricsRegistry.Timer t = FacadeMetricsRegistry.downstream("insurance-dao")) {
+            return dao.save(insuranceRequest);
+        } catch (final IllegalArgument e) {
+            // it should not happens
+            throw new EJBException(e.getMessage());
         }
-
-        return ir1;
     }
 
     private final MyLogger logger = MyLogger.newBuilder() //
@@ -555,7 +670,7 @@ public class InsuranceRequestFacadeBean implements InsuranceRequestFacadeLocal,
     @SuppressWarnings("unchecked")
     private <T extends InsuranceRequest> T _getById(Integer id) throws IllegalStateException, IllegalArgumentException {
         MyNumbers.requirePositive(id, "id");
-        try {
+        try (final FacadeMetricsRegistry.Timer t = FacadeMetricsRegistry.downstream("insurance-dao")) {
             final InsuranceRequest ir1 = dao.getById(id);
             final T ir2 = (T) ir1;
             return ir2;
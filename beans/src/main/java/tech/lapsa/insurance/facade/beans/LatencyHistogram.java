@@ -0,0 +1,54 @@
+package tech.lapsa.insurance.facade.beans;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// fixed bucket latency histogram rendered in the Prometheus text format
+final class LatencyHistogram {
+
+    private static final long[] BOUNDS_MILLIS = { 1, 5, 10, 25, 50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000 };
+
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS_MILLIS.length];
+
+    static {
+        for (int i = 0; i < BOUNDS_MILLIS.length; i++)
+            BOUNDS_NANOS[i] = TimeUnit.MILLISECONDS.toNanos(BOUNDS_MILLIS[i]);
+    }
+
+    // the last one counts the observations above the highest bound
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_NANOS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+
+    LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++)
+            buckets[i] = new LongAdder();
+    }
+
+    void record(final long nanos) {
+        int i = 0;
+        while (i < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[i])
+            i++;
+        buckets[i].increment();
+        count.increment();
+        sumNanos.add(nanos);
+    }
+
+    long count() {
+        return count.sum();
+    }
+
+    void render(final StringBuilder sb, final String name, final String labels) {
+        long cumulative = 0;
+        for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+            cumulative += buckets[i].sum();
+            sb.append(name).append("_bucket{").append(labels).append(",le=\"")
+                    .append(BOUNDS_MILLIS[i] / 1_000d).append("\"} ").append(cumulative).append('\n');
+        }
+        cumulative += buckets[BOUNDS_MILLIS.length].sum();
+        sb.append(name).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(cumulative).append('\n');
+        sb.append(name).append("_sum{").append(labels).append("} ").append(sumNanos.sum() / 1_000_000_000d)
+                .append('\n');
+        sb.append(name).append("_count{").append(labels).append("} ").append(count.sum()).append('\n');
+    }
+}
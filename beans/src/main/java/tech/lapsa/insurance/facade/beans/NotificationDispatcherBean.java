@@ -0,0 +1,271 @@
+package tech.lapsa.insurance.facade.beans;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.EJBException;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import tech.lapsa.insurance.facade.NotificationFacade.Notification;
+import tech.lapsa.insurance.facade.NotificationFacade.Notification.NotificationEventType;
+import tech.lapsa.java.commons.exceptions.IllegalArgument;
+import tech.lapsa.java.commons.function.MyObjects;
+import tech.lapsa.java.commons.function.MyStrings;
+import tech.lapsa.java.commons.logging.MyLogger;
+
+// sends notifications either right away or, for the event types configured
+// as asynchronous and for the ones the caller asks to, after the caller's
+// transaction commits by the background drain in batches with retries
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class NotificationDispatcherBean {
+
+    // comma separated NotificationEventType names, e.g. "NEW_REQUEST,REQUEST_PAID"
+    @Resource(name = "insurance-facade/notification-dispatcher/async-events")
+    private String asyncEventsNames = "";
+
+    @Resource(name = "insurance-facade/notification-dispatcher/max-attempts")
+    private Integer maxAttempts = 5;
+
+    @Resource(name = "insurance-facade/notification-dispatcher/retry-delay-seconds")
+    private Integer retryDelaySeconds = 10;
+
+    @Resource(name = "insurance-facade/notification-dispatcher/max-queue-size")
+    private Integer maxQueueSize = 10_000;
+
+    @Resource(name = "insurance-facade/notification-dispatcher/drain-interval-millis")
+    private Integer drainIntervalMillis = 1_000;
+
+    @Resource(name = "insurance-facade/notification-dispatcher/batch-size")
+    private Integer batchSize = 50;
+
+    @EJB
+    private NotificationFacadeBean notifications;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactions;
+
+    @Resource
+    private TimerService timerService;
+
+    private final Set<NotificationEventType> asyncEvents = EnumSet.noneOf(NotificationEventType.class);
+
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        Arrays.stream(asyncEventsNames.split(",")) //
+                .map(String::trim) //
+                .filter(MyStrings::nonEmpty) //
+                .map(NotificationEventType::valueOf) //
+                .forEach(asyncEvents::add);
+        logger.INFO.log("Notifications sent asynchronously for %1$s", asyncEvents);
+        timerService.createIntervalTimer(drainIntervalMillis, drainIntervalMillis, new TimerConfig(null, false));
+    }
+
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public void send(final Notification notification) throws IllegalArgument {
+        MyObjects.requireNonNull(notification, "notification");
+
+        if (!asyncEvents.contains(notification.getEvent()) || queueSize.get() >= maxQueueSize) {
+            notifications.send(notification);
+            sent.incrementAndGet();
+            return;
+        }
+
+        enqueueAfterCommit(notification);
+    }
+
+    // nothing is sent if the caller's transaction rolls back, whatever the
+    // event types are, the ones the queue has no room for are sent right away
+    // as by send() within the caller's transaction
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public void sendAllAfterCommit(final List<Notification> all) throws IllegalArgument {
+        MyObjects.requireNonNull(all, "notifications");
+        all.forEach(notification -> MyObjects.requireNonNull(notification, "notification"));
+
+        final int room = Math.min(all.size(), Math.max(0, maxQueueSize - queueSize.get()));
+        if (room < all.size()) {
+            notifications.sendAll(new ArrayList<>(all.subList(room, all.size())));
+            sent.addAndGet(all.size() - room);
+        }
+        all.subList(0, room).forEach(this::enqueueAfterCommit);
+    }
+
+    @Timeout
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void drain() {
+        if (!draining.compareAndSet(false, true))
+            return;
+        try {
+            final long now = System.nanoTime();
+            final List<Pending> batch = new ArrayList<>(batchSize);
+            // only entries present at the start are visited, requeued ones wait
+            // for the next run
+            for (int i = queueSize.get(); i > 0; i--) {
+                final Pending p = queue.poll();
+                if (p == null)
+                    break;
+                queueSize.decrementAndGet();
+                if (p.notBefore - now > 0) {
+                    enqueue(p);
+                    continue;
+                }
+                batch.add(p);
+                if (batch.size() >= batchSize) {
+                    deliver(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty())
+                deliver(batch);
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    @PreDestroy
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void shutdown() {
+        final List<Notification> rest = new ArrayList<>();
+        Pending p;
+        while ((p = queue.poll()) != null) {
+            queueSize.decrementAndGet();
+            rest.add(p.notification);
+        }
+        if (rest.isEmpty())
+            return;
+        try {
+            notifications.sendAll(rest);
+            sent.addAndGet(rest.size());
+        } catch (final IllegalArgument | EJBException e) {
+            dropped.addAndGet(rest.size());
+            logger.SEVERE.log("%1$s notifications dropped on shutdown: %2$s", rest.size(), e.getMessage());
+        }
+    }
+
+    // STATS
+
+    public int getQueueSize() {
+        return queueSize.get();
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getRetried() {
+        return retried.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    // PRIVATE
+
+    // nothing to notify about if the caller's transaction rolls back
+    private void enqueueAfterCommit(final Notification notification) {
+        Transactions.afterCommit(transactions, () -> enqueue(new Pending(notification)));
+    }
+
+    private void enqueue(final Pending p) {
+        queue.add(p);
+        queueSize.incrementAndGet();
+    }
+
+    // the whole batch is published in the single JMS transaction
+    private void deliver(final List<Pending> batch) {
+        try {
+            notifications.sendAll(batch.stream() //
+                    .map(p -> p.notification) //
+                    .collect(Collectors.toList()));
+            sent.addAndGet(batch.size());
+        } catch (final IllegalArgument e) {
+            // it should not happen, but single bad notification should not
+            // hold the rest of the batch, nothing of it is sent yet
+            batch.forEach(this::deliver);
+        } catch (final EJBException e) {
+            batch.forEach(p -> retryOrDrop(p, e));
+        }
+    }
+
+    private void deliver(final Pending p) {
+        try {
+            notifications.send(p.notification);
+            sent.incrementAndGet();
+        } catch (final IllegalArgument e) {
+            dropped.incrementAndGet();
+            logger.SEVERE.log("Notification %1$s dropped: %2$s", p.notification.getEvent(), e.getMessage());
+        } catch (final EJBException e) {
+            retryOrDrop(p, e);
+        }
+    }
+
+    private void retryOrDrop(final Pending p, final EJBException e) {
+        if (p.attempts + 1 >= maxAttempts) {
+            dropped.incrementAndGet();
+            logger.SEVERE.log("Notification %1$s dropped after %2$s attempts: %3$s", p.notification.getEvent(),
+                    maxAttempts, e.getMessage());
+            return;
+        }
+        retried.incrementAndGet();
+        enqueue(p.retry(TimeUnit.SECONDS.toNanos(retryDelaySeconds)));
+    }
+
+    private static final class Pending {
+
+        private final Notification notification;
+        private final int attempts;
+        private final long notBefore;
+
+        private Pending(final Notification notification) {
+            this(notification, 0, System.nanoTime());
+        }
+
+        private Pending(final Notification notification, final int attempts, final long notBefore) {
+            this.notification = notification;
+            this.attempts = attempts;
+            this.notBefore = notBefore;
+        }
+
+        // the delay doubles with every failed attempt
+        private Pending retry(final long baseDelayNanos) {
+            return new Pending(notification, attempts + 1, System.nanoTime() + (baseDelayNanos << attempts));
+        }
+    }
+
+    private final MyLogger logger = MyLogger.newBuilder() //
+            .withNameOf(NotificationDispatcherBean.class) //
+            .build();
+}
@@ -2,11 +2,17 @@ package tech.lapsa.insurance.facade.beans;
 
 import static tech.lapsa.insurance.shared.jms.InsuranceDestinations.*;
 
+import java.io.Serializable;
+import java.util.List;
+import java.util.stream.Collectors;
+
 import javax.annotation.Resource;
+import javax.ejb.EJB;
+import javax.ejb.LocalBean;
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
-import javax.inject.Inject;
+import javax.interceptor.Interceptors;
 import javax.jms.Destination;
 
 import com.lapsa.insurance.domain.Request;
@@ -19,10 +25,11 @@ import tech.lapsa.insurance.facade.NotificationFacade.NotificationFacadeRemote;
 import tech.lapsa.java.commons.exceptions.IllegalArgument;
 import tech.lapsa.java.commons.function.MyExceptions;
 import tech.lapsa.java.commons.function.MyObjects;
-import tech.lapsa.lapsa.jmsRPC.client.JmsClientFactory;
 import tech.lapsa.lapsa.jmsRPC.client.JmsEventNotificatorClient;
 
 @Stateless(name = NotificationFacade.BEAN_NAME)
+@Interceptors(FacadeMetricsInterceptor.class)
+@LocalBean
 public class NotificationFacadeBean implements NotificationFacadeLocal, NotificationFacadeRemote {
 
     // READERS
@@ -39,19 +46,58 @@ public class NotificationFacadeBean implements NotificationFacadeLocal, Notifica
         }
     }
 
+    //
+
+    // sends all the notifications in the single transaction, the destinations
+    // are resolved before the first one is sent so the bad notification
+    // rejects the whole list with nothing sent
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void sendAll(final List<Notification> notifications) throws IllegalArgument {
+        try {
+            MyObjects.requireNonNull(notifications, "notifications");
+            final List<Destination> destinations = notifications.stream() //
+                    .map(this::_resolve) //
+                    .collect(Collectors.toList());
+            for (int i = 0; i < notifications.size(); i++)
+                _send(destinations.get(i), notifications.get(i));
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgument(e);
+        }
+    }
+
     // PRIVATE
 
-    @Inject
-    private JmsClientFactory jmsFactory;
+    @EJB
+    private NotificatorPoolBean notificators;
 
-    // TODO REFACT : Required to send Notification object to the single JMS
-    // destination and process the Notification at the recipient side. Also it
-    // could removes the most of notification driven beans
     private void _send(final Notification notification) throws IllegalArgumentException {
+        _send(_resolve(notification), notification);
+    }
+
+    // In the envelope mode the Notification object itself is sent to the single
+    // JMS destination and processed at the recipient side. Otherwise the
+    // destination is resolved by the notification type
+    private Destination _resolve(final Notification notification) throws IllegalArgumentException {
         MyObjects.requireNonNull(notification, "notification");
+        // resolved in the envelope mode too, the notification that has no
+        // destination is rejected here rather than sent in the envelope
         final Destination destination = resolveDestination(notification);
-        final JmsEventNotificatorClient<Request> notificator = jmsFactory.createEventNotificator(destination);
-        notificator.eventNotify(notification.getEntity(), notification.getProperties());
+        return notificators.getEnvelopeDestination().orElse(destination);
+    }
+
+    private void _send(final Destination destination, final Notification notification) {
+        if (notificators.getEnvelopeDestination().isPresent())
+            _notify(destination, notification, notification);
+        else
+            _notify(destination, notification.getEntity(), notification);
+    }
+
+    private <E extends Serializable> void _notify(final Destination destination, final E entity,
+            final Notification notification) {
+        final JmsEventNotificatorClient<E> notificator = notificators.get(destination);
+        try (final FacadeMetricsRegistry.Timer t = FacadeMetricsRegistry.downstream("jms")) {
+            notificator.eventNotify(entity, notification.getProperties());
+        }
     }
 
     @Resource(name = NOTIFIER_NEW_POLICY_COMPANY_EMAIL)
@@ -0,0 +1,95 @@
+package tech.lapsa.insurance.facade.beans;
+
+import java.io.Serializable;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJBException;
+import javax.ejb.Singleton;
+import javax.inject.Inject;
+import javax.jms.Destination;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+
+import tech.lapsa.java.commons.function.MyObjects;
+import tech.lapsa.java.commons.function.MyStrings;
+import tech.lapsa.java.commons.logging.MyLogger;
+import tech.lapsa.lapsa.jmsRPC.client.JmsClientFactory;
+import tech.lapsa.lapsa.jmsRPC.client.JmsEventNotificatorClient;
+
+// notificator clients are cheap wrappers around the container managed
+// JMSContext of the factory so one client per destination is shared by all
+// callers
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class NotificatorPoolBean {
+
+    @Inject
+    private JmsClientFactory jmsFactory;
+
+    // JNDI name of the single destination that accepts whole Notification
+    // envelopes, empty to send to per notification type destinations
+    @Resource(name = "insurance-facade/notification/envelope-destination")
+    private String envelopeDestinationName = "";
+
+    private Destination envelopeDestination;
+
+    private final ConcurrentMap<Destination, JmsEventNotificatorClient<?>> notificators = new ConcurrentHashMap<>();
+
+    private final AtomicLong creations = new AtomicLong();
+    private final AtomicLong reuses = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (!MyStrings.nonEmpty(envelopeDestinationName))
+            return;
+        try {
+            envelopeDestination = (Destination) new InitialContext().lookup(envelopeDestinationName);
+        } catch (final NamingException e) {
+            throw new EJBException(e);
+        }
+        logger.INFO.log("Notifications are sent as envelopes to %1$s", envelopeDestinationName);
+    }
+
+    public Optional<Destination> getEnvelopeDestination() {
+        return Optional.ofNullable(envelopeDestination);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <E extends Serializable> JmsEventNotificatorClient<E> get(final Destination destination) {
+        MyObjects.requireNonNull(destination, "destination");
+        final JmsEventNotificatorClient<?> existing = notificators.get(destination);
+        if (existing != null) {
+            reuses.incrementAndGet();
+            return (JmsEventNotificatorClient<E>) existing;
+        }
+        return (JmsEventNotificatorClient<E>) notificators.computeIfAbsent(destination, this::create);
+    }
+
+    // STATS
+
+    public long getCreations() {
+        return creations.get();
+    }
+
+    public long getReuses() {
+        return reuses.get();
+    }
+
+    // PRIVATE
+
+    private JmsEventNotificatorClient<?> create(final Destination destination) {
+        creations.incrementAndGet();
+        return jmsFactory.createEventNotificator(destination);
+    }
+
+    private final MyLogger logger = MyLogger.newBuilder() //
+            .withNameOf(NotificatorPoolBean.class) //
+            .build();
+}
@@ -1,18 +1,26 @@
 package tech.lapsa.insurance.facade.beans;
 
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.Resource;
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
+import javax.interceptor.Interceptors;
 
-import tech.lapsa.esbd.dao.ESBDDAOPingService.ESBDDAOPingServiceRemote;
-import tech.lapsa.insurance.dao.InsuranceDAOPingService.InsuranceDAOPingServiceRemote;
 import tech.lapsa.insurance.facade.PingClient;
 import tech.lapsa.insurance.facade.PingClient.PingClientLocal;
 import tech.lapsa.insurance.facade.PingClient.PingClientRemote;
 import tech.lapsa.java.commons.exceptions.IllegalState;
-import tech.lapsa.java.commons.naming.MyNaming;
+import tech.lapsa.java.commons.function.MyStrings;
 
 @Stateless(name = PingClient.BEAN_NAME)
+@Interceptors(FacadeMetricsInterceptor.class)
 public class PingClientBean implements PingClientLocal, PingClientRemote {
 
     @Override
@@ -27,22 +35,58 @@ public class PingClientBean implements PingClientLocal, PingClientRemote {
 
     // PRIVATE
 
-    private void _fullPing() throws IllegalState, IllegalStateException {
-        _pingESBDDAO();
-        _pingInsuranceDAO();
-    }
+    @EJB
+    private PingTargetsBean targets;
+
+    @Resource(name = "insurance-facade/ping/timeout-millis")
+    private Integer timeoutMillis = 3_000;
+
+    // the result of the last full ping is served to the probes coming within
+    // this period
+    @Resource(name = "insurance-facade/ping/freshness-millis")
+    private Integer freshnessMillis = 5_000;
+
+    private void _fullPing() throws IllegalStateException {
+        final Optional<PingTargetsBean.Result> recent = targets.getRecent(freshnessMillis);
+        if (recent.isPresent()) {
+            if (recent.get().getFailure().isPresent())
+                throw new IllegalStateException(recent.get().getFailure().get());
+            return;
+        }
 
-    private void _pingInsuranceDAO() throws IllegalState {
-        MyNaming.lookupEJB(IllegalStateException::new, InsuranceDAOPingServiceRemote.APPLICATION_NAME,
-                InsuranceDAOPingServiceRemote.MODULE_NAME, InsuranceDAOPingServiceRemote.BEAN_NAME,
-                InsuranceDAOPingServiceRemote.class) //
-                .ping();
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        final Future<Void> esbdDAO;
+        final Future<Void> insuranceDAO;
+        try {
+            esbdDAO = targets.pingESBDDAO();
+            insuranceDAO = targets.pingInsuranceDAO();
+        } catch (IllegalState e) {
+            // asynchronous methods report the failures via the Future
+            throw new IllegalStateException(e);
+        }
+
+        final String esbdDAOFailure = _await(esbdDAO, "ESBD DAO", deadline);
+        final String insuranceDAOFailure = _await(insuranceDAO, "Insurance DAO", deadline);
+        final String failure = esbdDAOFailure != null ? esbdDAOFailure : insuranceDAOFailure;
+        targets.record(failure);
+        if (failure != null)
+            throw new IllegalStateException(failure);
     }
 
-    private void _pingESBDDAO() throws IllegalState {
-        MyNaming.lookupEJB(IllegalStateException::new, ESBDDAOPingServiceRemote.APPLICATION_NAME,
-                ESBDDAOPingServiceRemote.MODULE_NAME, ESBDDAOPingServiceRemote.BEAN_NAME,
-                ESBDDAOPingServiceRemote.class) //
-                .ping();
+    // the failure description or null if the ping succeeded
+    private static String _await(final Future<Void> ping, final String name, final long deadline) {
+        try {
+            ping.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return null;
+        } catch (TimeoutException e) {
+            ping.cancel(true);
+            return MyStrings.format("%1$s ping timed out", name);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return MyStrings.format("%1$s ping interrupted", name);
+        } catch (ExecutionException e) {
+            return MyStrings.format("%1$s ping failed: %2$s", name, e.getCause().getMessage());
+        }
     }
 }
@@ -0,0 +1,102 @@
+package tech.lapsa.insurance.facade.beans;
+
+import java.util.Optional;
+import java.util.concurrent.Future;
+
+import javax.ejb.AsyncResult;
+import javax.ejb.Asynchronous;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJBException;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+
+import tech.lapsa.esbd.dao.ESBDDAOPingService.ESBDDAOPingServiceRemote;
+import tech.lapsa.insurance.dao.InsuranceDAOPingService.InsuranceDAOPingServiceRemote;
+import tech.lapsa.java.commons.exceptions.IllegalState;
+import tech.lapsa.java.commons.naming.MyNaming;
+
+// holds the ping proxies looked up once and the result of the last full ping,
+// the proxy is looked up again after it fails with the system exception
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class PingTargetsBean {
+
+    private volatile ESBDDAOPingServiceRemote esbdDAO;
+    private volatile InsuranceDAOPingServiceRemote insuranceDAO;
+
+    private volatile Result last;
+
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public Future<Void> pingESBDDAO() throws IllegalState, IllegalStateException {
+        final ESBDDAOPingServiceRemote proxy = _esbdDAO();
+        try {
+            proxy.ping();
+        } catch (final EJBException e) {
+            esbdDAO = null;
+            throw e;
+        }
+        return new AsyncResult<>(null);
+    }
+
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public Future<Void> pingInsuranceDAO() throws IllegalState, IllegalStateException {
+        final InsuranceDAOPingServiceRemote proxy = _insuranceDAO();
+        try {
+            proxy.ping();
+        } catch (final EJBException e) {
+            insuranceDAO = null;
+            throw e;
+        }
+        return new AsyncResult<>(null);
+    }
+
+    // the result of the full ping finished no longer than maxAgeMillis ago
+    public Optional<Result> getRecent(final long maxAgeMillis) {
+        final Result r = last;
+        if (r == null || System.nanoTime() - r.at > maxAgeMillis * 1_000_000)
+            return Optional.empty();
+        return Optional.of(r);
+    }
+
+    public void record(final String failure) {
+        last = new Result(failure);
+    }
+
+    public static final class Result {
+
+        private final long at = System.nanoTime();
+        private final String failure;
+
+        private Result(final String failure) {
+            this.failure = failure;
+        }
+
+        public Optional<String> getFailure() {
+            return Optional.ofNullable(failure);
+        }
+    }
+
+    // PRIVATE
+
+    private ESBDDAOPingServiceRemote _esbdDAO() throws IllegalStateException {
+        ESBDDAOPingServiceRemote proxy = esbdDAO;
+        if (proxy == null)
+            esbdDAO = proxy = MyNaming.lookupEJB(IllegalStateException::new,
+                    ESBDDAOPingServiceRemote.APPLICATION_NAME, ESBDDAOPingServiceRemote.MODULE_NAME,
+                    ESBDDAOPingServiceRemote.BEAN_NAME, ESBDDAOPingServiceRemote.class);
+        return proxy;
+    }
+
+    private InsuranceDAOPingServiceRemote _insuranceDAO() throws IllegalStateException {
+        InsuranceDAOPingServiceRemote proxy = insuranceDAO;
+        if (proxy == null)
+            insuranceDAO = proxy = MyNaming.lookupEJB(IllegalStateException::new,
+                    InsuranceDAOPingServiceRemote.APPLICATION_NAME, InsuranceDAOPingServiceRemote.MODULE_NAME,
+                    InsuranceDAOPingServiceRemote.BEAN_NAME, InsuranceDAOPingServiceRemote.class);
+        return proxy;
+    }
+}
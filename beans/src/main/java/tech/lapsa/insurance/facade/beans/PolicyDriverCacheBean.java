@@ -0,0 +1,127 @@
+package tech.lapsa.insurance.facade.beans;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+
+import com.lapsa.insurance.elements.InsuranceClassType;
+
+import tech.lapsa.esbd.domain.entities.SubjectPersonEntity;
+import tech.lapsa.kz.taxpayer.TaxpayerNumber;
+
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class PolicyDriverCacheBean {
+
+    @Resource(name = "insurance-facade/policy-driver-cache/max-size")
+    private Integer maxSize = 10_000;
+
+    @Resource(name = "insurance-facade/policy-driver-cache/ttl-seconds")
+    private Integer ttlSeconds = 600;
+
+    @Resource(name = "insurance-facade/policy-driver-cache/negative-ttl-seconds")
+    private Integer negativeTtlSeconds = 60;
+
+    // how long after expiry the entry still may be served by the
+    // stale-while-revalidate lookups
+    @Resource(name = "insurance-facade/policy-driver-cache/stale-seconds")
+    private Integer staleSeconds = 3_600;
+
+    private ExpiringCache<TaxpayerNumber, FetchedDriver> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = new ExpiringCache<>(maxSize, Duration.ofSeconds(ttlSeconds), Duration.ofSeconds(negativeTtlSeconds),
+                Duration.ofSeconds(staleSeconds));
+    }
+
+    public Optional<FetchedDriver> getOrLoad(final TaxpayerNumber idNumber,
+            final Function<TaxpayerNumber, Optional<FetchedDriver>> loader) {
+        return cache.getOrLoad(idNumber, loader);
+    }
+
+    public Optional<Optional<FetchedDriver>> getStaleOrRefresh(final TaxpayerNumber idNumber,
+            final Consumer<TaxpayerNumber> refresh) {
+        return cache.getStaleOrRefresh(idNumber, refresh);
+    }
+
+    // the refresh dispatched by getStaleOrRefresh
+    public void refresh(final TaxpayerNumber idNumber,
+            final Function<TaxpayerNumber, Optional<FetchedDriver>> loader) {
+        cache.refresh(idNumber, loader);
+    }
+
+    public void invalidate(final TaxpayerNumber idNumber) {
+        cache.invalidate(idNumber);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    // STATS
+
+    public int getSize() {
+        return cache.size();
+    }
+
+    public long getHits() {
+        return cache.hits();
+    }
+
+    public long getMisses() {
+        return cache.misses();
+    }
+
+    public long getEvictions() {
+        return cache.evictions();
+    }
+
+    public long getExpirations() {
+        return cache.expirations();
+    }
+
+    // lookups served by the load already running for the same key
+    public long getCoalesced() {
+        return cache.coalesced();
+    }
+
+    public long getStaleHits() {
+        return cache.staleHits();
+    }
+
+    public long getRefreshes() {
+        return cache.refreshes();
+    }
+
+    //
+
+    public static final class FetchedDriver {
+
+        private final SubjectPersonEntity subject;
+        private final InsuranceClassType insuranceClassType;
+
+        FetchedDriver(final SubjectPersonEntity subject, final InsuranceClassType insuranceClassType) {
+            this.subject = subject;
+            this.insuranceClassType = insuranceClassType;
+        }
+
+        public SubjectPersonEntity getSubject() {
+            return subject;
+        }
+
+        public InsuranceClassType getInsuranceClassType() {
+            return insuranceClassType;
+        }
+    }
+}
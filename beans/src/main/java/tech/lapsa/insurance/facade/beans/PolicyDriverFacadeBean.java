@@ -1,12 +1,20 @@
 package tech.lapsa.insurance.facade.beans;
 
 import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.Future;
 
+import javax.annotation.Resource;
+import javax.ejb.AsyncResult;
+import javax.ejb.Asynchronous;
 import javax.ejb.EJB;
 import javax.ejb.EJBException;
+import javax.ejb.LocalBean;
+import javax.ejb.SessionContext;
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
+import javax.interceptor.Interceptors;
 
 import com.lapsa.insurance.domain.ContactData;
 import com.lapsa.insurance.domain.DriverLicenseData;
@@ -21,22 +29,27 @@ import com.lapsa.insurance.elements.Sex;
 
 import tech.lapsa.esbd.dao.NotFound;
 import tech.lapsa.esbd.dao.elements.InsuranceClassTypeService;
-import tech.lapsa.esbd.dao.elements.InsuranceClassTypeService.InsuranceClassTypeServiceRemote;
-import tech.lapsa.esbd.dao.entities.SubjectPersonEntityService.SubjectPersonEntityServiceRemote;
 import tech.lapsa.esbd.domain.entities.InsuredDriverEntity;
 import tech.lapsa.esbd.domain.entities.SubjectEntity;
 import tech.lapsa.esbd.domain.entities.SubjectPersonEntity;
+import tech.lapsa.insurance.facade.DownstreamUnavailable;
+import tech.lapsa.insurance.facade.PolicyDriverAsyncFacade.PolicyDriverAsyncFacadeLocal;
+import tech.lapsa.insurance.facade.PolicyDriverAsyncFacade.PolicyDriverAsyncFacadeRemote;
 import tech.lapsa.insurance.facade.PolicyDriverFacade;
 import tech.lapsa.insurance.facade.PolicyDriverFacade.PolicyDriverFacadeLocal;
 import tech.lapsa.insurance.facade.PolicyDriverFacade.PolicyDriverFacadeRemote;
 import tech.lapsa.insurance.facade.PolicyDriverNotFound;
+import tech.lapsa.insurance.facade.beans.PolicyDriverCacheBean.FetchedDriver;
 import tech.lapsa.java.commons.exceptions.IllegalArgument;
 import tech.lapsa.java.commons.function.MyExceptions;
 import tech.lapsa.java.commons.function.MyObjects;
 import tech.lapsa.kz.taxpayer.TaxpayerNumber;
 
 @Stateless(name = PolicyDriverFacade.BEAN_NAME)
-public class PolicyDriverFacadeBean implements PolicyDriverFacadeLocal, PolicyDriverFacadeRemote {
+@Interceptors(FacadeMetricsInterceptor.class)
+@LocalBean
+public class PolicyDriverFacadeBean implements PolicyDriverFacadeLocal, PolicyDriverFacadeRemote,
+        PolicyDriverAsyncFacadeLocal, PolicyDriverAsyncFacadeRemote {
 
     // READERS
 
@@ -47,10 +60,13 @@ public class PolicyDriverFacadeBean implements PolicyDriverFacadeLocal, PolicyDr
     }
 
     @EJB
-    private InsuranceClassTypeServiceRemote insuranceClassTypeService;
+    private EsbdGuardsBean esbd;
+
+    @EJB
+    private DefaultInsuranceClassHolderBean defaultInsuranceClass;
 
     private InsuranceClassType _getDefaultInsuranceClass() {
-        return insuranceClassTypeService.getDefault();
+        return defaultInsuranceClass.get();
     }
 
     //
@@ -67,25 +83,38 @@ public class PolicyDriverFacadeBean implements PolicyDriverFacadeLocal, PolicyDr
     }
 
     @EJB
-    private SubjectPersonEntityServiceRemote subjectPersonService;
+    private PolicyDriverCacheBean driverCache;
 
     private PolicyDriver _getByTaxpayerNumber(final TaxpayerNumber idNumber)
             throws IllegalArgumentException, PolicyDriverNotFound {
         MyObjects.requireNonNull(idNumber, "idNumber");
 
+        final FetchedDriver fetched = driverCache.getOrLoad(idNumber, this::_fetchByTaxpayerNumber) //
+                .orElseThrow(MyExceptions.supplier(PolicyDriverNotFound::new, "Driver not found with idNumber %1$s",
+                        idNumber));
+
+        final PolicyDriver pd = fillFromESBDEntity(fetched.getSubject(), fetched.getInsuranceClassType());
+        _fillFromTaxpayerNumber(pd, idNumber);
+        return pd;
+    }
+
+    private Optional<FetchedDriver> _fetchByTaxpayerNumber(final TaxpayerNumber idNumber) {
         final SubjectPersonEntity sp;
-        try {
-            sp = subjectPersonService.getFirstByIdNumber(idNumber);
+        try (final FacadeMetricsRegistry.Timer t = FacadeMetricsRegistry
+                .downstream("esbd.SubjectPersonEntityService")) {
+            sp = esbd.getSubjectPersonService().getFirstByIdNumber(idNumber);
         } catch (final IllegalArgument e) {
             // it should not happens
             throw new EJBException(e.getMessage());
         } catch (final NotFound e) {
-            throw MyExceptions.format(PolicyDriverNotFound::new, "Driver not found with idNumber %1$s", idNumber);
+            return Optional.empty();
         }
-
-        final PolicyDriver pd = _fillFromESBDEntity(sp);
-        _fillFromTaxpayerNumber(pd, idNumber);
-        return pd;
+        final InsuranceClassType defaultClass = _getDefaultInsuranceClass();
+        final InsuranceClassType insuranceClassType;
+        try (final FacadeMetricsRegistry.Timer t = FacadeMetricsRegistry.downstream("esbd.InsuranceClassTypeService")) {
+            insuranceClassType = resolveInsuranceClass(sp, esbd.getInsuranceClassTypeService(), defaultClass);
+        }
+        return Optional.of(new FetchedDriver(sp, insuranceClassType));
     }
 
     //
@@ -100,17 +129,83 @@ public class PolicyDriverFacadeBean implements PolicyDriverFacadeLocal, PolicyDr
         }
     }
 
+    // the prefill doesn't wait for ESBD, the cached driver is returned even if
+    // stale and refreshed in the background
+    @Resource(name = "insurance-facade/policy-driver/stale-while-revalidate")
+    private Boolean staleWhileRevalidate = false;
+
+    @Resource
+    private SessionContext context;
+
     private PolicyDriver _getByTaxpayerNumberOrDefault(final TaxpayerNumber taxpayerNumber)
             throws IllegalArgumentException {
+        if (staleWhileRevalidate)
+            return _getStaleByTaxpayerNumberOrDefault(taxpayerNumber);
         try {
             return _getByTaxpayerNumber(taxpayerNumber);
-        } catch (final PolicyDriverNotFound e) {
+        } catch (final PolicyDriverNotFound | DownstreamUnavailable e) {
+            // ESBD rejected the call, the default is as good as for unknown one
             final PolicyDriver pd = new PolicyDriver();
             _fillFromTaxpayerNumber(pd, taxpayerNumber);
             return pd;
         }
     }
 
+    private PolicyDriver _getStaleByTaxpayerNumberOrDefault(final TaxpayerNumber taxpayerNumber)
+            throws IllegalArgumentException {
+        MyObjects.requireNonNull(taxpayerNumber, "taxpayerNumber");
+
+        final PolicyDriverFacadeBean self = context.getBusinessObject(PolicyDriverFacadeBean.class);
+        final PolicyDriver pd = driverCache.getStaleOrRefresh(taxpayerNumber, self::refreshByTaxpayerNumber) //
+                .flatMap(x -> x) //
+                .map(x -> fillFromESBDEntity(x.getSubject(), x.getInsuranceClassType())) //
+                .orElseGet(PolicyDriver::new);
+        _fillFromTaxpayerNumber(pd, taxpayerNumber);
+        return pd;
+    }
+
+    // ASYNC
+
+    @Override
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public Future<PolicyDriver> getByTaxpayerNumberAsync(final TaxpayerNumber idNumber)
+            throws IllegalArgument, PolicyDriverNotFound {
+        try {
+            return new AsyncResult<>(_getByTaxpayerNumber(idNumber));
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgument(e);
+        }
+    }
+
+    //
+
+    // reloads the driver cache entry, called by the stale-while-revalidate
+    // lookups
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void refreshByTaxpayerNumber(final TaxpayerNumber idNumber) {
+        try {
+            driverCache.refresh(idNumber, this::_fetchByTaxpayerNumber);
+        } catch (final DownstreamUnavailable e) {
+            // the stale entry is served until the next attempt
+        }
+    }
+
+    //
+
+    @Override
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public Future<PolicyDriver> getByTaxpayerNumberOrDefaultAsync(final TaxpayerNumber taxpayerNumber)
+            throws IllegalArgument {
+        try {
+            return new AsyncResult<>(_getByTaxpayerNumberOrDefault(taxpayerNumber));
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgument(e);
+        }
+    }
+
     //
 
     @Override
@@ -176,13 +271,15 @@ public class PolicyDriverFacadeBean implements PolicyDriverFacadeLocal, PolicyDr
 
     //
 
-    static PolicyDriver __fillFromESBDEntity(final InsuredDriverEntity in,
-            final InsuranceClassTypeService insuranceClassTypeService) {
+    static PolicyDriver __fillFromESBDEntity(final InsuredDriverEntity in) {
 
         if (in == null)
             return new PolicyDriver();
 
-        final PolicyDriver out = fillFromESBDEntity(in.getInsured(), insuranceClassTypeService);
+        // insurance class is known from the insured driver record so there is
+        // no need to resolve it for the subject, it is set whatever the subject
+        // type is
+        final PolicyDriver out = fillFromESBDEntity(in.getInsured(), in.getInsuraceClassType());
 
         out.setAgeClass(in.getAgeClass());
         out.setExpirienceClass(in.getExpirienceClass());
@@ -213,12 +310,24 @@ public class PolicyDriverFacadeBean implements PolicyDriverFacadeLocal, PolicyDr
 
     //
 
-    private PolicyDriver _fillFromESBDEntity(final SubjectEntity in) {
-        return fillFromESBDEntity(in, insuranceClassTypeService);
+    // the unavailable service fails the resolution rather than falls back to
+    // the default so the default class is never cached for the driver
+    static InsuranceClassType resolveInsuranceClass(final SubjectEntity in,
+            final InsuranceClassTypeService insuranceClassTypeService,
+            final InsuranceClassType defaultInsuranceClassType) throws DownstreamUnavailable {
+
+        if (!(in instanceof SubjectPersonEntity))
+            return null;
+
+        InsuranceClassType insuranceClassTypeLocal = defaultInsuranceClassType;
+        try {
+            insuranceClassTypeLocal = insuranceClassTypeService.getForSubject((SubjectPersonEntity) in);
+        } catch (final NotFound | IllegalArgument e) {
+        }
+        return insuranceClassTypeLocal;
     }
 
-    static PolicyDriver fillFromESBDEntity(final SubjectEntity in,
-            final InsuranceClassTypeService insuranceClassTypeService) {
+    static PolicyDriver fillFromESBDEntity(final SubjectEntity in, final InsuranceClassType insuranceClassType) {
 
         final PolicyDriver driver = new PolicyDriver();
 
@@ -232,15 +341,6 @@ public class PolicyDriverFacadeBean implements PolicyDriverFacadeLocal, PolicyDr
             if (in instanceof SubjectPersonEntity) {
                 final SubjectPersonEntity inPerson = (SubjectPersonEntity) in;
 
-                InsuranceClassType insuranceClassTypeLocal = null;
-                {
-                    insuranceClassTypeLocal = insuranceClassTypeService.getDefault();
-                    try {
-                        insuranceClassTypeLocal = insuranceClassTypeService.getForSubject(inPerson);
-                    } catch (final NotFound | IllegalArgument e) {
-                    }
-                }
-
                 LocalDate dobLocal = null;
                 {
                     if (inPerson.getPersonal() != null && inPerson.getPersonal().getDayOfBirth() != null)
@@ -259,7 +359,7 @@ public class PolicyDriverFacadeBean implements PolicyDriverFacadeLocal, PolicyDr
                         genderLocal = inPerson.getPersonal().getGender();
                 }
 
-                driver.setInsuranceClassType(insuranceClassTypeLocal);
+                driver.setInsuranceClassType(insuranceClassType);
                 driver.setAgeClass(insuredAgeClassLocal);
 
                 driver.getPersonalData().setDateOfBirth(dobLocal);
@@ -0,0 +1,36 @@
+package tech.lapsa.insurance.facade.beans;
+
+import java.util.Optional;
+import java.util.concurrent.Future;
+
+import javax.ejb.AsyncResult;
+import javax.ejb.Asynchronous;
+import javax.ejb.EJB;
+import javax.ejb.EJBException;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+
+import tech.lapsa.esbd.dao.NotFound;
+import tech.lapsa.esbd.domain.entities.PolicyEntity;
+import tech.lapsa.java.commons.exceptions.IllegalArgument;
+
+@Stateless
+public class PolicyEntityAsyncBean {
+
+    @EJB
+    private EsbdGuardsBean esbd;
+
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public Future<Optional<PolicyEntity>> getByNumber(final String number) {
+        try (final FacadeMetricsRegistry.Timer t = FacadeMetricsRegistry.downstream("esbd.PolicyEntityService")) {
+            return new AsyncResult<>(Optional.of(esbd.getPolicyService().getByNumber(number)));
+        } catch (final IllegalArgument e) {
+            // it should not happens
+            throw new EJBException(e.getMessage());
+        } catch (final NotFound e) {
+            return new AsyncResult<>(Optional.empty());
+        }
+    }
+}
@@ -1,12 +1,23 @@
 package tech.lapsa.insurance.facade.beans;
 
+import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.Currency;
-
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+import javax.annotation.Resource;
 import javax.ejb.EJB;
 import javax.ejb.EJBException;
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
+import javax.interceptor.Interceptors;
 
 import com.lapsa.insurance.domain.CalculationData;
 import com.lapsa.insurance.domain.CompanyData;
@@ -16,23 +27,27 @@ import com.lapsa.insurance.domain.PersonalData;
 import com.lapsa.insurance.domain.policy.Policy;
 
 import tech.lapsa.esbd.dao.NotFound;
-import tech.lapsa.esbd.dao.elements.InsuranceClassTypeService;
-import tech.lapsa.esbd.dao.elements.InsuranceClassTypeService.InsuranceClassTypeServiceRemote;
-import tech.lapsa.esbd.dao.entities.PolicyEntityService.PolicyEntityServiceRemote;
 import tech.lapsa.esbd.domain.entities.PolicyEntity;
 import tech.lapsa.esbd.domain.entities.SubjectCompanyEntity;
 import tech.lapsa.esbd.domain.entities.SubjectPersonEntity;
+import tech.lapsa.insurance.facade.PolicyBatchFacade.PolicyBatchFacadeLocal;
+import tech.lapsa.insurance.facade.PolicyBatchFacade.PolicyBatchFacadeRemote;
+import tech.lapsa.insurance.facade.PolicyBatchResult;
 import tech.lapsa.insurance.facade.PolicyFacade;
 import tech.lapsa.insurance.facade.PolicyFacade.PolicyFacadeLocal;
 import tech.lapsa.insurance.facade.PolicyFacade.PolicyFacadeRemote;
 import tech.lapsa.insurance.facade.PolicyNotFound;
 import tech.lapsa.java.commons.exceptions.IllegalArgument;
 import tech.lapsa.java.commons.function.MyExceptions;
+import tech.lapsa.java.commons.function.MyObjects;
 import tech.lapsa.java.commons.function.MyStreams;
 import tech.lapsa.java.commons.function.MyStrings;
+import tech.lapsa.java.commons.logging.MyLogger;
 
 @Stateless(name = PolicyFacade.BEAN_NAME)
-public class PolicyFacadeBean implements PolicyFacadeLocal, PolicyFacadeRemote {
+@Interceptors(FacadeMetricsInterceptor.class)
+public class PolicyFacadeBean
+        implements PolicyFacadeLocal, PolicyFacadeRemote, PolicyBatchFacadeLocal, PolicyBatchFacadeRemote {
 
     private static final Currency KZT = Currency.getInstance("KZT");
 
@@ -49,14 +64,14 @@ public class PolicyFacadeBean implements PolicyFacadeLocal, PolicyFacadeRemote {
     }
 
     @EJB
-    private PolicyEntityServiceRemote policyService;
+    private EsbdGuardsBean esbd;
 
     private Policy _getByNumber(final String number) throws IllegalArgumentException, PolicyNotFound {
         MyStrings.requireNonEmpty(number, "number");
 
         final PolicyEntity p;
-        try {
-            p = policyService.getByNumber(number);
+        try (final FacadeMetricsRegistry.Timer t = FacadeMetricsRegistry.downstream("esbd.PolicyEntityService")) {
+            p = esbd.getPolicyService().getByNumber(number);
         } catch (final IllegalArgument e) {
             // it should not happens
             throw new EJBException(e.getMessage());
@@ -69,14 +84,77 @@ public class PolicyFacadeBean implements PolicyFacadeLocal, PolicyFacadeRemote {
 
     //
 
+    @Override
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public PolicyBatchResult getByNumbers(final Collection<String> numbers) throws IllegalArgument {
+        try {
+            return _getByNumbers(numbers);
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgument(e);
+        }
+    }
+
+    @Resource(name = "insurance-facade/policy-batch/max-concurrency")
+    private Integer batchMaxConcurrency = 8;
+
     @EJB
-    private InsuranceClassTypeServiceRemote insuranceClassTypeService;
+    private PolicyEntityAsyncBean policyAsync;
+
+    private PolicyBatchResult _getByNumbers(final Collection<String> numbers) throws IllegalArgumentException {
+        MyObjects.requireNonNull(numbers, "numbers");
+
+        final Set<String> unique = new LinkedHashSet<>();
+        for (final String number : numbers)
+            unique.add(MyStrings.requireNonEmpty(number, "number"));
+
+        final Map<String, Policy> found = new LinkedHashMap<>();
+        final Set<String> notFound = new LinkedHashSet<>();
+        final Set<String> failed = new LinkedHashSet<>();
+
+        // no more than batchMaxConcurrency lookups are in flight, results are
+        // collected in the order of the numbers, a failed lookup doesn't stop
+        // the others
+        final Deque<String> pendingNumbers = new ArrayDeque<>();
+        final Deque<Future<Optional<PolicyEntity>>> pending = new ArrayDeque<>();
+        for (final String number : unique) {
+            if (pending.size() >= batchMaxConcurrency)
+                _collect(pendingNumbers.poll(), pending.poll(), found, notFound, failed);
+            pendingNumbers.add(number);
+            pending.add(policyAsync.getByNumber(number));
+        }
+        while (!pending.isEmpty())
+            _collect(pendingNumbers.poll(), pending.poll(), found, notFound, failed);
+
+        return new PolicyBatchResult(found, notFound, failed);
+    }
+
+    private void _collect(final String number, final Future<Optional<PolicyEntity>> pending,
+            final Map<String, Policy> found, final Set<String> notFound, final Set<String> failed) {
+        final Optional<PolicyEntity> p;
+        try {
+            p = Futures.await(pending);
+        } catch (final EJBException e) {
+            logger.WARNING.log("Policy lookup failed for number %1$s: %2$s", number, e.getMessage());
+            failed.add(number);
+            return;
+        }
+        if (p.isPresent())
+            found.put(number, _fillFromESBDEntity(p.get()));
+        else
+            notFound.add(number);
+    }
+
+    private final MyLogger logger = MyLogger.newBuilder() //
+            .withNameOf(PolicyFacade.class) //
+            .build();
+
+    //
 
     private Policy _fillFromESBDEntity(final PolicyEntity in) {
-        return fillFromESBDEntity(in, insuranceClassTypeService);
+        return fillFromESBDEntity(in);
     }
 
-    static Policy fillFromESBDEntity(final PolicyEntity in, final InsuranceClassTypeService insuranceClassTypeService) {
+    static Policy fillFromESBDEntity(final PolicyEntity in) {
         if (in == null)
             return new Policy();
 
@@ -167,8 +245,7 @@ public class PolicyFacadeBean implements PolicyFacadeLocal, PolicyFacadeRemote {
         in.getInsurer();
 
         // in.getInsuredDrivers();
-        MyStreams.orEmptyOf(in.getInsuredDrivers())
-                .map(x -> PolicyDriverFacadeBean.__fillFromESBDEntity(x, insuranceClassTypeService))
+        MyStreams.orEmptyOf(in.getInsuredDrivers()).map(PolicyDriverFacadeBean::__fillFromESBDEntity)
                 .forEach(out::addDriver);
 
         // in.getInsuredVehicles();
@@ -0,0 +1,153 @@
+package tech.lapsa.insurance.facade.beans;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+
+import tech.lapsa.esbd.domain.entities.VehicleEntity;
+import tech.lapsa.java.commons.function.MyObjects;
+import tech.lapsa.java.commons.function.MyStrings;
+import tech.lapsa.kz.vehicle.VehicleRegNumber;
+
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class PolicyVehicleCacheBean {
+
+    @Resource(name = "insurance-facade/policy-vehicle-cache/max-size")
+    private Integer maxSize = 10_000;
+
+    @Resource(name = "insurance-facade/policy-vehicle-cache/ttl-seconds")
+    private Integer ttlSeconds = 600;
+
+    @Resource(name = "insurance-facade/policy-vehicle-cache/negative-ttl-seconds")
+    private Integer negativeTtlSeconds = 60;
+
+    @Resource(name = "insurance-facade/policy-vehicle-cache/stale-seconds")
+    private Integer staleSeconds = 3_600;
+
+    // reg numbers and VIN codes share the same bounded cache
+    private ExpiringCache<Object, List<VehicleEntity>> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = new ExpiringCache<>(maxSize, Duration.ofSeconds(ttlSeconds), Duration.ofSeconds(negativeTtlSeconds),
+                Duration.ofSeconds(staleSeconds));
+    }
+
+    public List<VehicleEntity> getByRegNumber(final VehicleRegNumber regNumber,
+            final Function<VehicleRegNumber, List<VehicleEntity>> loader) {
+        MyObjects.requireNonNull(regNumber, "regNumber");
+        return cache.getOrLoad(regNumber, x -> nonEmpty(loader.apply(regNumber))) //
+                .orElseGet(Collections::emptyList);
+    }
+
+    public List<VehicleEntity> getByVINCode(final String vinCode,
+            final Function<String, List<VehicleEntity>> loader) {
+        MyStrings.requireNonEmpty(vinCode, "vinCode");
+        return cache.getOrLoad(new VINCodeKey(vinCode), x -> nonEmpty(loader.apply(vinCode))) //
+                .orElseGet(Collections::emptyList);
+    }
+
+    // empty when nothing is cached for the reg number, the empty list when it
+    // is cached as not found
+    public Optional<List<VehicleEntity>> getStaleByRegNumber(final VehicleRegNumber regNumber,
+            final Consumer<VehicleRegNumber> refresh) {
+        MyObjects.requireNonNull(regNumber, "regNumber");
+        MyObjects.requireNonNull(refresh, "refresh");
+        return cache.getStaleOrRefresh(regNumber, x -> refresh.accept(regNumber)) //
+                .map(x -> x.orElseGet(Collections::emptyList));
+    }
+
+    // the refresh dispatched by getStaleByRegNumber
+    public void refreshByRegNumber(final VehicleRegNumber regNumber,
+            final Function<VehicleRegNumber, List<VehicleEntity>> loader) {
+        MyObjects.requireNonNull(regNumber, "regNumber");
+        cache.refresh(regNumber, x -> nonEmpty(loader.apply(regNumber)));
+    }
+
+    public void invalidateRegNumber(final VehicleRegNumber regNumber) {
+        cache.invalidate(regNumber);
+    }
+
+    public void invalidateVINCode(final String vinCode) {
+        cache.invalidate(new VINCodeKey(vinCode));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    // STATS
+
+    public int getSize() {
+        return cache.size();
+    }
+
+    public long getHits() {
+        return cache.hits();
+    }
+
+    public long getMisses() {
+        return cache.misses();
+    }
+
+    public long getEvictions() {
+        return cache.evictions();
+    }
+
+    public long getExpirations() {
+        return cache.expirations();
+    }
+
+    // lookups served by the load already running for the same key
+    public long getCoalesced() {
+        return cache.coalesced();
+    }
+
+    public long getStaleHits() {
+        return cache.staleHits();
+    }
+
+    public long getRefreshes() {
+        return cache.refreshes();
+    }
+
+    // PRIVATE
+
+    private static Optional<List<VehicleEntity>> nonEmpty(final List<VehicleEntity> vv) {
+        return vv == null || vv.isEmpty() //
+                ? Optional.empty()
+                : Optional.of(Collections.unmodifiableList(vv));
+    }
+
+    private static final class VINCodeKey {
+
+        private final String vinCode;
+
+        private VINCodeKey(final String vinCode) {
+            this.vinCode = vinCode;
+        }
+
+        @Override
+        public int hashCode() {
+            return vinCode.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof VINCodeKey && vinCode.equals(((VINCodeKey) obj).vinCode);
+        }
+    }
+}
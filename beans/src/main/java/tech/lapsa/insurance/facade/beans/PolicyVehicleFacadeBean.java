@@ -1,23 +1,32 @@
 package tech.lapsa.insurance.facade.beans;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Stream;
+import java.util.concurrent.Future;
 
+import javax.annotation.Resource;
+import javax.ejb.AsyncResult;
+import javax.ejb.Asynchronous;
 import javax.ejb.EJB;
 import javax.ejb.EJBException;
+import javax.ejb.LocalBean;
+import javax.ejb.SessionContext;
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
+import javax.interceptor.Interceptors;
 
 import com.lapsa.insurance.domain.VehicleCertificateData;
 import com.lapsa.insurance.domain.policy.PolicyVehicle;
 import com.lapsa.insurance.elements.VehicleAgeClass;
 import com.lapsa.insurance.elements.VehicleClass;
 
-import tech.lapsa.esbd.dao.entities.VehicleEntityService.VehicleEntityServiceRemote;
 import tech.lapsa.esbd.domain.entities.InsuredVehicleEntity;
 import tech.lapsa.esbd.domain.entities.VehicleEntity;
+import tech.lapsa.insurance.facade.DownstreamUnavailable;
+import tech.lapsa.insurance.facade.PolicyVehicleAsyncFacade.PolicyVehicleAsyncFacadeLocal;
+import tech.lapsa.insurance.facade.PolicyVehicleAsyncFacade.PolicyVehicleAsyncFacadeRemote;
 import tech.lapsa.insurance.facade.PolicyVehicleFacade;
 import tech.lapsa.insurance.facade.PolicyVehicleFacade.PolicyVehicleFacadeLocal;
 import tech.lapsa.insurance.facade.PolicyVehicleFacade.PolicyVehicleFacadeRemote;
@@ -32,7 +41,10 @@ import tech.lapsa.kz.vehicle.VehicleRegNumber;
 import tech.lapsa.kz.vehicle.VehicleType;
 
 @Stateless(name = PolicyVehicleFacade.BEAN_NAME)
-public class PolicyVehicleFacadeBean implements PolicyVehicleFacadeLocal, PolicyVehicleFacadeRemote {
+@Interceptors(FacadeMetricsInterceptor.class)
+@LocalBean
+public class PolicyVehicleFacadeBean implements PolicyVehicleFacadeLocal, PolicyVehicleFacadeRemote,
+        PolicyVehicleAsyncFacadeLocal, PolicyVehicleAsyncFacadeRemote {
 
     @Override
     @TransactionAttribute(TransactionAttributeType.SUPPORTS)
@@ -45,21 +57,47 @@ public class PolicyVehicleFacadeBean implements PolicyVehicleFacadeLocal, Policy
     }
 
     @EJB
-    private VehicleEntityServiceRemote vehicleService;
+    private EsbdGuardsBean esbd;
 
-    private List<PolicyVehicle> _fetchAllByRegNumber(final VehicleRegNumber regNumber) throws IllegalArgumentException {
-        MyObjects.requireNonNull(regNumber, "regNumber");
+    @EJB
+    private PolicyVehicleCacheBean vehicleCache;
 
-        final List<VehicleEntity> vv;
-        try {
-            vv = vehicleService.getByRegNumber(regNumber);
+    // the prefill doesn't wait for ESBD, the cached vehicles are used even if
+    // stale and refreshed in the background
+    @Resource(name = "insurance-facade/policy-vehicle/stale-while-revalidate")
+    private Boolean staleWhileRevalidate = false;
+
+    @Resource
+    private SessionContext context;
+
+    private List<VehicleEntity> _getByRegNumber(final VehicleRegNumber regNumber) {
+        return vehicleCache.getByRegNumber(regNumber, this::_fetchByRegNumber);
+    }
+
+    private List<VehicleEntity> _fetchByRegNumber(final VehicleRegNumber regNumber) {
+        try (final FacadeMetricsRegistry.Timer t = FacadeMetricsRegistry.downstream("esbd.VehicleEntityService")) {
+            return esbd.getVehicleService().getByRegNumber(regNumber);
         } catch (final IllegalArgument e) {
             // it should not happens
             throw new EJBException(e.getMessage());
         }
+    }
+
+    private List<VehicleEntity> _getByVINCode(final String vinCode) {
+        return vehicleCache.getByVINCode(vinCode, x -> {
+            try (final FacadeMetricsRegistry.Timer t = FacadeMetricsRegistry.downstream("esbd.VehicleEntityService")) {
+                return esbd.getVehicleService().getByVINCode(x);
+            } catch (final IllegalArgument e) {
+                // it should not happens
+                throw new EJBException(e.getMessage());
+            }
+        });
+    }
+
+    private List<PolicyVehicle> _fetchAllByRegNumber(final VehicleRegNumber regNumber) throws IllegalArgumentException {
+        MyObjects.requireNonNull(regNumber, "regNumber");
 
-        return MyOptionals.streamOf(vv) //
-                .orElseGet(Stream::empty) //
+        return _getByRegNumber(regNumber).stream() //
                 .map(this::_fillFromESBDEntity) //
                 .map(x -> _fillFromVehicleRegNumber(x, regNumber)).collect(MyCollectors.unmodifiableList());
     }
@@ -79,16 +117,7 @@ public class PolicyVehicleFacadeBean implements PolicyVehicleFacadeLocal, Policy
     private List<PolicyVehicle> _fetchAllByVINCode(final String vinCode) throws IllegalArgumentException {
         MyStrings.requireNonEmpty(vinCode, "vinCode");
 
-        final List<VehicleEntity> vv;
-        try {
-            vv = vehicleService.getByVINCode(vinCode);
-        } catch (final IllegalArgument e) {
-            // it should not happens
-            throw new EJBException(e.getMessage());
-        }
-
-        return MyOptionals.streamOf(vv) //
-                .orElseGet(Stream::empty) //
+        return _getByVINCode(vinCode).stream() //
                 .map(this::_fillFromESBDEntity) //
                 .collect(MyCollectors.unmodifiableList());
     }
@@ -109,16 +138,7 @@ public class PolicyVehicleFacadeBean implements PolicyVehicleFacadeLocal, Policy
             throws IllegalArgumentException, PolicyVehicleNotFound {
         MyStrings.requireNonEmpty(vinCode, "vinCode");
 
-        final List<VehicleEntity> vv;
-        try {
-            vv = vehicleService.getByVINCode(vinCode);
-        } catch (final IllegalArgument e) {
-            // it should not happens
-            throw new EJBException(e.getMessage());
-        }
-
-        return MyOptionals.streamOf(vv) //
-                .orElseGet(Stream::empty) //
+        return _getByVINCode(vinCode).stream() //
                 .findFirst().map(this::_fillFromESBDEntity).orElseThrow(MyExceptions
                         .supplier(PolicyVehicleNotFound::new, "Policy vehicle not found with VIN code %1$s", vinCode));
     }
@@ -138,8 +158,13 @@ public class PolicyVehicleFacadeBean implements PolicyVehicleFacadeLocal, Policy
 
     private PolicyVehicle _fetchFirstByRegNumber(final VehicleRegNumber regNumber)
             throws IllegalArgumentException, PolicyVehicleNotFound {
-        return _fetchAllByRegNumber(regNumber).stream().findFirst().orElseThrow(MyExceptions
-                .supplier(PolicyVehicleNotFound::new, "Policy vehicle not found with reg number %1$s", regNumber));
+        MyObjects.requireNonNull(regNumber, "regNumber");
+
+        final List<VehicleEntity> vv = _getByRegNumber(regNumber);
+        if (vv.isEmpty())
+            throw MyExceptions.format(PolicyVehicleNotFound::new, "Policy vehicle not found with reg number %1$s",
+                    regNumber);
+        return _fillFromVehicleRegNumber(_fillFromESBDEntity(vv.get(0)), regNumber);
     }
 
     //
@@ -157,11 +182,13 @@ public class PolicyVehicleFacadeBean implements PolicyVehicleFacadeLocal, Policy
 
     private PolicyVehicle _fetchLastByRegNumber(final VehicleRegNumber regNumber)
             throws IllegalArgumentException, PolicyVehicleNotFound {
-        final List<PolicyVehicle> vv = _fetchAllByRegNumber(regNumber);
+        MyObjects.requireNonNull(regNumber, "regNumber");
+
+        final List<VehicleEntity> vv = _getByRegNumber(regNumber);
         if (vv.isEmpty())
             throw MyExceptions.format(PolicyVehicleNotFound::new, "Policy vehicle not found with reg number %1$s",
                     regNumber);
-        return vv.get(vv.size() - 1);
+        return _fillFromVehicleRegNumber(_fillFromESBDEntity(vv.get(vv.size() - 1)), regNumber);
     }
 
     //
@@ -178,9 +205,15 @@ public class PolicyVehicleFacadeBean implements PolicyVehicleFacadeLocal, Policy
 
     private PolicyVehicle _fetchFirstByRegNumberOrDefault(final VehicleRegNumber regNumber)
             throws IllegalArgumentException {
+        if (staleWhileRevalidate) {
+            final List<VehicleEntity> vv = _getStaleByRegNumber(regNumber);
+            return _fillFromVehicleRegNumber(vv.isEmpty() ? new PolicyVehicle() : _fillFromESBDEntity(vv.get(0)),
+                    regNumber);
+        }
         try {
             return _fetchFirstByRegNumber(regNumber);
-        } catch (final PolicyVehicleNotFound e) {
+        } catch (final PolicyVehicleNotFound | DownstreamUnavailable e) {
+            // ESBD rejected the call, the default is as good as for unknown one
             final PolicyVehicle pv = new PolicyVehicle();
             _fillFromVehicleRegNumber(pv, regNumber);
             return pv;
@@ -201,15 +234,143 @@ public class PolicyVehicleFacadeBean implements PolicyVehicleFacadeLocal, Policy
 
     private PolicyVehicle _fetchLastByRegNumberOrDefault(final VehicleRegNumber regNumber)
             throws IllegalArgumentException {
+        if (staleWhileRevalidate) {
+            final List<VehicleEntity> vv = _getStaleByRegNumber(regNumber);
+            return _fillFromVehicleRegNumber(
+                    vv.isEmpty() ? new PolicyVehicle() : _fillFromESBDEntity(vv.get(vv.size() - 1)), regNumber);
+        }
         try {
             return _fetchLastByRegNumber(regNumber);
-        } catch (final PolicyVehicleNotFound e) {
+        } catch (final PolicyVehicleNotFound | DownstreamUnavailable e) {
+            // ESBD rejected the call, the default is as good as for unknown one
             final PolicyVehicle pv = new PolicyVehicle();
             _fillFromVehicleRegNumber(pv, regNumber);
             return pv;
         }
     }
 
+    // empty when nothing is cached yet
+    private List<VehicleEntity> _getStaleByRegNumber(final VehicleRegNumber regNumber)
+            throws IllegalArgumentException {
+        MyObjects.requireNonNull(regNumber, "regNumber");
+
+        final PolicyVehicleFacadeBean self = context.getBusinessObject(PolicyVehicleFacadeBean.class);
+        return vehicleCache.getStaleByRegNumber(regNumber, self::refreshByRegNumber) //
+                .orElseGet(Collections::emptyList);
+    }
+
+    // ASYNC
+
+    // reloads the vehicle cache entry, called by the stale-while-revalidate
+    // lookups
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void refreshByRegNumber(final VehicleRegNumber regNumber) {
+        try {
+            vehicleCache.refreshByRegNumber(regNumber, this::_fetchByRegNumber);
+        } catch (final DownstreamUnavailable e) {
+            // the stale entry is served until the next attempt
+        }
+    }
+
+    //
+
+    @Override
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public Future<List<PolicyVehicle>> fetchAllByRegNumberAsync(final VehicleRegNumber regNumber)
+            throws IllegalArgument {
+        try {
+            return new AsyncResult<>(_fetchAllByRegNumber(regNumber));
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgument(e);
+        }
+    }
+
+    //
+
+    @Override
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public Future<List<PolicyVehicle>> fetchAllByVINCodeAsync(final String vinCode)
+            throws IllegalArgument {
+        try {
+            return new AsyncResult<>(_fetchAllByVINCode(vinCode));
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgument(e);
+        }
+    }
+
+    //
+
+    @Override
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public Future<PolicyVehicle> fetchFirstByVINCodeAsync(final String vinCode)
+            throws IllegalArgument, PolicyVehicleNotFound {
+        try {
+            return new AsyncResult<>(_fetchFirstByVINCode(vinCode));
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgument(e);
+        }
+    }
+
+    //
+
+    @Override
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public Future<PolicyVehicle> fetchFirstByRegNumberAsync(final VehicleRegNumber regNumber)
+            throws IllegalArgument, PolicyVehicleNotFound {
+        try {
+            return new AsyncResult<>(_fetchFirstByRegNumber(regNumber));
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgument(e);
+        }
+    }
+
+    //
+
+    @Override
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public Future<PolicyVehicle> fetchLastByRegNumberAsync(final VehicleRegNumber regNumber)
+            throws IllegalArgument, PolicyVehicleNotFound {
+        try {
+            return new AsyncResult<>(_fetchLastByRegNumber(regNumber));
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgument(e);
+        }
+    }
+
+    //
+
+    @Override
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public Future<PolicyVehicle> fetchFirstByRegNumberOrDefaultAsync(final VehicleRegNumber regNumber)
+            throws IllegalArgument {
+        try {
+            return new AsyncResult<>(_fetchFirstByRegNumberOrDefault(regNumber));
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgument(e);
+        }
+    }
+
+    //
+
+    @Override
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public Future<PolicyVehicle> fetchLastByRegNumberOrDefaultAsync(final VehicleRegNumber regNumber)
+            throws IllegalArgument {
+        try {
+            return new AsyncResult<>(_fetchLastByRegNumberOrDefault(regNumber));
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgument(e);
+        }
+    }
+
     //
 
     @Override
@@ -0,0 +1,98 @@
+package tech.lapsa.insurance.facade.beans;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+
+import com.lapsa.insurance.domain.crm.User;
+
+import tech.lapsa.java.commons.function.MyObjects;
+
+// principal name to user cache, the lookups of the same principal that miss
+// the cache are serialized by the lock stripe so the user is created once
+//
+// users are mutable entities so the cache keeps them serialized, see
+// DetachedCopies
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class PrincipalUserCacheBean {
+
+    @Resource(name = "insurance-facade/principal-user-cache/max-size")
+    private Integer maxSize = 10_000;
+
+    @Resource(name = "insurance-facade/principal-user-cache/ttl-seconds")
+    private Integer ttlSeconds = 300;
+
+    @Resource(name = "insurance-facade/principal-user-cache/lock-stripes")
+    private Integer lockStripes = 64;
+
+    private ExpiringCache<String, byte[]> cache;
+
+    private Object[] locks;
+
+    @PostConstruct
+    public void init() {
+        // users are never absent once findOrCreate returned so there is
+        // nothing to cache negatively
+        cache = new ExpiringCache<>(maxSize, Duration.ofSeconds(ttlSeconds), Duration.ZERO);
+        locks = new Object[lockStripes];
+        for (int i = 0; i < locks.length; i++)
+            locks[i] = new Object();
+    }
+
+    // the loader must commit the created user before it returns, otherwise the
+    // next caller of the same principal may not see it
+    public User getOrCreate(final String principalName, final Function<String, User> findOrCreate) {
+        MyObjects.requireNonNull(principalName, "principalName");
+        MyObjects.requireNonNull(findOrCreate, "findOrCreate");
+
+        final Optional<Optional<byte[]>> cached = cache.getIfPresent(principalName);
+        if (cached.isPresent() && cached.get().isPresent())
+            return DetachedCopies.deserialize(cached.get().get());
+
+        synchronized (locks[Math.floorMod(principalName.hashCode(), locks.length)]) {
+            return DetachedCopies.deserialize(cache
+                    .getOrLoad(principalName, name -> Optional.of(DetachedCopies.serialize(findOrCreate.apply(name))))
+                    .get());
+        }
+    }
+
+    public void invalidate(final String principalName) {
+        cache.invalidate(principalName);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    // STATS
+
+    public int getSize() {
+        return cache.size();
+    }
+
+    public long getHits() {
+        return cache.hits();
+    }
+
+    public long getMisses() {
+        return cache.misses();
+    }
+
+    public long getEvictions() {
+        return cache.evictions();
+    }
+
+    public long getExpirations() {
+        return cache.expirations();
+    }
+}
@@ -0,0 +1,138 @@
+package tech.lapsa.insurance.facade.beans;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Resource;
+import javax.ejb.EJB;
+import javax.ejb.EJBException;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.interceptor.Interceptors;
+
+import com.lapsa.insurance.domain.policy.PolicyDriver;
+import com.lapsa.insurance.domain.policy.PolicyVehicle;
+
+import tech.lapsa.insurance.facade.PolicyDriverAsyncFacade.PolicyDriverAsyncFacadeLocal;
+import tech.lapsa.insurance.facade.PolicyVehicleAsyncFacade.PolicyVehicleAsyncFacadeLocal;
+import tech.lapsa.insurance.facade.QuotePrefill;
+import tech.lapsa.insurance.facade.QuotePrefillFacade;
+import tech.lapsa.insurance.facade.QuotePrefillFacade.QuotePrefillFacadeLocal;
+import tech.lapsa.insurance.facade.QuotePrefillFacade.QuotePrefillFacadeRemote;
+import tech.lapsa.java.commons.exceptions.IllegalArgument;
+import tech.lapsa.java.commons.function.MyObjects;
+import tech.lapsa.java.commons.logging.MyLogger;
+import tech.lapsa.kz.taxpayer.TaxpayerNumber;
+import tech.lapsa.kz.vehicle.VehicleRegNumber;
+
+@Stateless(name = QuotePrefillFacade.BEAN_NAME)
+@Interceptors(FacadeMetricsInterceptor.class)
+public class QuotePrefillFacadeBean implements QuotePrefillFacadeLocal, QuotePrefillFacadeRemote {
+
+    // READERS
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public QuotePrefill prefill(final List<TaxpayerNumber> taxpayerNumbers, final List<VehicleRegNumber> regNumbers)
+            throws IllegalArgument {
+        try {
+            return _prefill(taxpayerNumbers, regNumbers);
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgument(e);
+        }
+    }
+
+    // PRIVATE
+
+    @EJB
+    private PolicyDriverAsyncFacadeLocal drivers;
+
+    @EJB
+    private PolicyVehicleAsyncFacadeLocal vehicles;
+
+    @EJB
+    private DefaultInsuranceClassHolderBean defaultInsuranceClass;
+
+    @Resource(name = "insurance-facade/quote-prefill/timeout-millis")
+    private Integer timeoutMillis = 5_000;
+
+    private QuotePrefill _prefill(final List<TaxpayerNumber> taxpayerNumbers, final List<VehicleRegNumber> regNumbers)
+            throws IllegalArgumentException {
+        MyObjects.requireNonNull(taxpayerNumbers, "taxpayerNumbers");
+        MyObjects.requireNonNull(regNumbers, "regNumbers");
+        taxpayerNumbers.forEach(x -> MyObjects.requireNonNull(x, "taxpayerNumber"));
+        regNumbers.forEach(x -> MyObjects.requireNonNull(x, "regNumber"));
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        // all lookups are started first and collected after
+        final List<Future<PolicyDriver>> pendingDrivers = new ArrayList<>(taxpayerNumbers.size());
+        for (final TaxpayerNumber taxpayerNumber : taxpayerNumbers)
+            try {
+                pendingDrivers.add(drivers.getByTaxpayerNumberOrDefaultAsync(taxpayerNumber));
+            } catch (final IllegalArgument e) {
+                // it should not happens
+                throw new EJBException(e.getMessage());
+            }
+
+        final List<Future<PolicyVehicle>> pendingVehicles = new ArrayList<>(regNumbers.size());
+        for (final VehicleRegNumber regNumber : regNumbers)
+            try {
+                pendingVehicles.add(vehicles.fetchFirstByRegNumberOrDefaultAsync(regNumber));
+            } catch (final IllegalArgument e) {
+                // it should not happens
+                throw new EJBException(e.getMessage());
+            }
+
+        final List<PolicyDriver> dd = new ArrayList<>(taxpayerNumbers.size());
+        for (int i = 0; i < taxpayerNumbers.size(); i++) {
+            final TaxpayerNumber taxpayerNumber = taxpayerNumbers.get(i);
+            dd.add(_awaitDriver(pendingDrivers.get(i), deadline, taxpayerNumber));
+        }
+
+        final List<PolicyVehicle> vv = new ArrayList<>(regNumbers.size());
+        for (int i = 0; i < regNumbers.size(); i++) {
+            final VehicleRegNumber regNumber = regNumbers.get(i);
+            vv.add(_awaitVehicle(pendingVehicles.get(i), deadline, regNumber));
+        }
+
+        return new QuotePrefill(dd, vv);
+    }
+
+    // the failed lookup gets the default as the timed out one does
+    private PolicyDriver _awaitDriver(final Future<PolicyDriver> pending, final long deadline,
+            final TaxpayerNumber taxpayerNumber) {
+        try {
+            return Futures.await(pending, deadline, () -> _defaultDriver(taxpayerNumber, "timed out"));
+        } catch (final EJBException e) {
+            return _defaultDriver(taxpayerNumber, "failed (" + e.getMessage() + ")");
+        }
+    }
+
+    private PolicyVehicle _awaitVehicle(final Future<PolicyVehicle> pending, final long deadline,
+            final VehicleRegNumber regNumber) {
+        try {
+            return Futures.await(pending, deadline, () -> _defaultVehicle(regNumber, "timed out"));
+        } catch (final EJBException e) {
+            return _defaultVehicle(regNumber, "failed (" + e.getMessage() + ")");
+        }
+    }
+
+    private PolicyDriver _defaultDriver(final TaxpayerNumber taxpayerNumber, final String reason) {
+        logger.WARNING.log("Driver lookup %2$s for idNumber %1$s, default is used", taxpayerNumber, reason);
+        return PolicyDriverFacadeBean.fillFromTaxpayerNumber(new PolicyDriver(), taxpayerNumber,
+                defaultInsuranceClass.get());
+    }
+
+    private PolicyVehicle _defaultVehicle(final VehicleRegNumber regNumber, final String reason) {
+        logger.WARNING.log("Vehicle lookup %2$s for reg number %1$s, default is used", regNumber, reason);
+        return PolicyVehicleFacadeBean.fillFromVehicleRegNumber(new PolicyVehicle(), regNumber);
+    }
+
+    private final MyLogger logger = MyLogger.newBuilder() //
+            .withNameOf(QuotePrefillFacade.class) //
+            .build();
+}
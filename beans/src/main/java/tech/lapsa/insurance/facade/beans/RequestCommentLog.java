@@ -0,0 +1,142 @@
+package tech.lapsa.insurance.facade.beans;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import tech.lapsa.insurance.facade.RequestComment;
+
+// the request note is the log of comments, the newest first, each one is
+// rendered as
+//
+// \n<date> <time> #<message length> <user name>\n<message>\n
+//
+// the message is stored as is, the length tells where it ends so the message
+// lines looking like the header don't split it
+//
+// the note stays the single source of comments, the structured view is parsed
+// from it on demand only, the entries written before the length was introduced
+// have the header without it and are split by the next header-like line
+final class RequestCommentLog {
+
+    private RequestCommentLog() {
+    }
+
+    private static final DateTimeFormatter COMMENT_DATE_TIME_FORMATTER = //
+            new DateTimeFormatterBuilder() //
+                    .append(DateTimeFormatter.ISO_LOCAL_DATE) //
+                    .appendLiteral(" ") //
+                    .append(DateTimeFormatter.ISO_LOCAL_TIME) //
+                    .toFormatter();
+
+    // seconds are optional in ISO_LOCAL_TIME
+    private static final String TIMESTAMP = "(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}(?::\\d{2})?)";
+
+    private static final Pattern HEADER = Pattern.compile(TIMESTAMP + " #(\\d{1,9}) ([^\\n]*)");
+
+    private static final Pattern LEGACY_HEADER = Pattern.compile("^" + TIMESTAMP + " (.*)$", Pattern.MULTILINE);
+
+    static RequestComment newComment(final String userName, final String message) {
+        return new RequestComment(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS), userName, message);
+    }
+
+    // the old note is copied once into the buffer sized up front, the note is
+    // a single column so the cost is still linear in the size of the note
+    static String prepend(final String oldNote, final RequestComment comment) {
+        final String timestamp = comment.getTimestamp().format(COMMENT_DATE_TIME_FORMATTER);
+        final String length = String.valueOf(comment.getMessage().length());
+        final String userName = String.valueOf(comment.getUserName());
+        final String message = comment.getMessage();
+        final String old = oldNote == null ? "" : oldNote;
+        return new StringBuilder(timestamp.length() + length.length() + userName.length() + message.length()
+                + old.length() + 7) //
+                        .append('\n') //
+                        .append(timestamp) //
+                        .append(" #") //
+                        .append(length) //
+                        .append(' ') //
+                        .append(userName) //
+                        .append('\n') //
+                        .append(message) //
+                        .append('\n') //
+                        .append(old) //
+                        .toString();
+    }
+
+    static List<RequestComment> parse(final String note) {
+        if (note == null || note.isEmpty())
+            return Collections.emptyList();
+        final List<RequestComment> comments = new ArrayList<>();
+        final Matcher m = HEADER.matcher(note);
+        int pos = 0;
+        while (true) {
+            pos = skipNewLines(note, pos);
+            if (pos == note.length())
+                return comments;
+            m.region(pos, note.length());
+            if (!m.lookingAt())
+                return parseLegacy(note, pos, comments);
+            final int messageStart = m.end() + 1;
+            final int messageEnd = messageStart + Integer.parseInt(m.group(2));
+            if (messageEnd > note.length() || note.charAt(m.end()) != '\n'
+                    || messageEnd < note.length() && note.charAt(messageEnd) != '\n')
+                // the note edited by hand, the rest is split by the headers
+                return parseLegacy(note, pos, comments);
+            final LocalDateTime timestamp;
+            try {
+                timestamp = LocalDateTime.parse(m.group(1), COMMENT_DATE_TIME_FORMATTER);
+            } catch (final DateTimeParseException e) {
+                // the note edited by hand, it is not a comment log
+                return Collections.emptyList();
+            }
+            comments.add(new RequestComment(timestamp, m.group(3), note.substring(messageStart, messageEnd)));
+            pos = messageEnd;
+        }
+    }
+
+    // PRIVATE
+
+    private static List<RequestComment> parseLegacy(final String note, final int from,
+            final List<RequestComment> comments) {
+        final Matcher m = LEGACY_HEADER.matcher(note);
+        if (!m.find(from))
+            return comments;
+        while (true) {
+            final LocalDateTime timestamp;
+            try {
+                timestamp = LocalDateTime.parse(m.group(1), COMMENT_DATE_TIME_FORMATTER);
+            } catch (final DateTimeParseException e) {
+                // the note edited by hand, it is not a comment log
+                return Collections.emptyList();
+            }
+            final String userName = m.group(2);
+            final int messageStart = Math.min(m.end() + 1, note.length());
+            final boolean hasNext = m.find();
+            final int messageEnd = hasNext ? m.start() : note.length();
+            comments.add(new RequestComment(timestamp, userName, trimNewLines(note, messageStart, messageEnd)));
+            if (!hasNext)
+                return comments;
+        }
+    }
+
+    private static int skipNewLines(final String s, final int start) {
+        int i = start;
+        while (i < s.length() && s.charAt(i) == '\n')
+            i++;
+        return i;
+    }
+
+    private static String trimNewLines(final String s, final int start, final int end) {
+        int e = end;
+        while (e > start && s.charAt(e - 1) == '\n')
+            e--;
+        return s.substring(start, e);
+    }
+}
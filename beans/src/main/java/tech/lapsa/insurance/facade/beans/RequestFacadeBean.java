@@ -1,30 +1,45 @@
 package tech.lapsa.insurance.facade.beans;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeFormatterBuilder;
-import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
+import javax.annotation.Resource;
 import javax.ejb.EJB;
 import javax.ejb.EJBException;
+import javax.ejb.LocalBean;
+import javax.ejb.SessionContext;
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
+import javax.interceptor.Interceptors;
 
 import com.lapsa.insurance.domain.Request;
 import com.lapsa.insurance.domain.crm.User;
 
 import tech.lapsa.insurance.dao.RequestDAO.RequestDAORemote;
+import tech.lapsa.insurance.facade.RequestComment;
+import tech.lapsa.insurance.facade.RequestCommentBatchResult;
+import tech.lapsa.insurance.facade.RequestCommentFacade.RequestCommentFacadeLocal;
+import tech.lapsa.insurance.facade.RequestCommentFacade.RequestCommentFacadeRemote;
 import tech.lapsa.insurance.facade.RequestFacade;
 import tech.lapsa.insurance.facade.RequestFacade.RequestFacadeLocal;
 import tech.lapsa.insurance.facade.RequestFacade.RequestFacadeRemote;
 import tech.lapsa.java.commons.exceptions.IllegalArgument;
 import tech.lapsa.java.commons.exceptions.IllegalState;
+import tech.lapsa.java.commons.function.MyExceptions;
+import tech.lapsa.java.commons.function.MyNumbers;
 import tech.lapsa.java.commons.function.MyObjects;
 import tech.lapsa.java.commons.function.MyStrings;
+import tech.lapsa.java.commons.logging.MyLogger;
+import tech.lapsa.patterns.dao.NotFound;
 
 @Stateless(name = RequestFacade.BEAN_NAME)
-public class RequestFacadeBean implements RequestFacadeLocal, RequestFacadeRemote {
+@Interceptors(FacadeMetricsInterceptor.class)
+@LocalBean
+public class RequestFacadeBean
+        implements RequestFacadeLocal, RequestFacadeRemote, RequestCommentFacadeLocal, RequestCommentFacadeRemote {
 
     // EJBs
 
@@ -33,6 +48,12 @@ public class RequestFacadeBean implements RequestFacadeLocal, RequestFacadeRemot
     @EJB
     private RequestDAORemote dao;
 
+    @Resource
+    private SessionContext context;
+
+    @Resource(name = "insurance-facade/comment-batch/chunk-size")
+    private Integer commentChunkSize = 50;
+
     @Override
     @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
     public <T extends Request> T commentRequest(T request, User user, String message)
@@ -46,35 +67,98 @@ public class RequestFacadeBean implements RequestFacadeLocal, RequestFacadeRemot
         }
     }
 
-    private static final DateTimeFormatter COMMENT_DATE_TIME_FORMATTER = //
-            new DateTimeFormatterBuilder() //
-                    .append(DateTimeFormatter.ISO_LOCAL_DATE) //
-                    .appendLiteral(" ") //
-                    .append(DateTimeFormatter.ISO_LOCAL_TIME) //
-                    .toFormatter();
+    @Override
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public List<RequestComment> getComments(final Integer id) throws IllegalState, IllegalArgument {
+        try {
+            return _getComments(id);
+        } catch (IllegalStateException e) {
+            throw new IllegalState(e);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgument(e);
+        }
+    }
 
-    private static String getTimestamp() {
-        return LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).format(COMMENT_DATE_TIME_FORMATTER);
+    // commented by chunks of commentChunkSize requests
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public RequestCommentBatchResult commentRequests(final List<Integer> ids, final User user, final String message)
+            throws IllegalArgument {
+        try {
+            return _commentRequests(ids, user, message);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgument(e);
+        }
     }
 
-    private <T extends Request> T _commentRequest(T request, User user, String message) {
-        MyObjects.requireNonNull(request, "request");
+    // the chunk of commentRequests, see ChunkedBatch
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public Map<Integer, String> commentRequestsChunk(final List<Integer> chunk, final RequestComment comment) {
+        final Map<Integer, String> failed = new LinkedHashMap<>();
+        for (final Integer id : chunk) {
+            final Request request;
+            try (final FacadeMetricsRegistry.Timer t = FacadeMetricsRegistry.downstream("insurance-dao")) {
+                request = dao.getById(id);
+            } catch (IllegalArgument e) {
+                // it should not happen
+                throw new EJBException(e);
+            } catch (NotFound e) {
+                failed.put(id, e.getMessage());
+                continue;
+            }
+            request.setNote(RequestCommentLog.prepend(request.getNote(), comment));
+            try (final FacadeMetricsRegistry.Timer t = FacadeMetricsRegistry.downstream("insurance-dao")) {
+                dao.save(request);
+            } catch (IllegalArgument e) {
+                // it should not happen
+                throw new EJBException(e);
+            }
+        }
+        return failed;
+    }
+
+    private RequestCommentBatchResult _commentRequests(final List<Integer> ids, final User user,
+            final String message) {
+        MyObjects.requireNonNull(ids, "ids");
+        ids.forEach(it -> MyObjects.requireNonNull(it, "id"));
         MyObjects.requireNonNull(user, "user");
         MyStrings.requireNonEmpty(message, "message");
 
-        final String newLine = MyStrings.format("%1$s %2$s\n%3$s", //
-                getTimestamp(), // 1
-                user.getName(), // 2
-                message // 3
-        );
+        // all the requests get the same comment with the same timestamp
+        final RequestComment comment = RequestCommentLog.newComment(user.getName(), message);
+        final RequestFacadeBean self = context.getBusinessObject(RequestFacadeBean.class);
+
+        // the request listed twice is commented once
+        final ChunkedBatch<Integer> batch = ChunkedBatch.run(ids, commentChunkSize, Function.identity(),
+                chunk -> self.commentRequestsChunk(chunk, comment), logger);
+
+        return new RequestCommentBatchResult(batch.getDone(), batch.getFailed());
+    }
+
+    private List<RequestComment> _getComments(final Integer id) {
+        MyNumbers.requirePositive(id, "id");
+        final Request request;
+        try (final FacadeMetricsRegistry.Timer t = FacadeMetricsRegistry.downstream("insurance-dao")) {
+            request = dao.getById(id);
+        } catch (NotFound e) {
+            throw MyExceptions.illegalStateFormat("Request not found with id %1$s", id);
+        } catch (IllegalArgument e) {
+            // it should not happen
+            throw new EJBException(e);
+        }
+        return RequestCommentLog.parse(request.getNote());
+    }
 
-        final String oldNote = request.getNote();
-        final String newNote = MyStrings.format("\n%1$s\n%2$s", newLine, oldNote == null ? "" : oldNote);
+    private <T extends Request> T _commentRequest(T request, User user, String message) {
+        MyObjects.requireNonNull(request, "request");
+        MyObjects.requireNonNull(user, "user");
+        MyStrings.requireNonEmpty(message, "message");
 
-        request.setNote(newNote);
+        final RequestComment comment = RequestCommentLog.newComment(user.getName(), message);
+        request.setNote(RequestCommentLog.prepend(request.getNote(), comment));
 
         final T r1;
-        try {
+        try (final FacadeMetricsRegistry.Timer t = FacadeMetricsRegistry.downstream("insurance-dao")) {
             r1 = dao.save(request);
         } catch (IllegalArgument e) {
             // it should not happen
@@ -83,4 +167,8 @@ public class RequestFacadeBean implements RequestFacadeLocal, RequestFacadeRemot
 
         return r1;
     }
+
+    private final MyLogger logger = MyLogger.newBuilder() //
+            .withNameOf(RequestFacade.class) //
+            .build();
 }
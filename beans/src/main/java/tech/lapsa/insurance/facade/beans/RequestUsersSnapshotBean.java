@@ -0,0 +1,134 @@
+package tech.lapsa.insurance.facade.beans;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.EJBException;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import com.lapsa.insurance.domain.crm.User;
+
+import tech.lapsa.insurance.dao.UserDAO.UserDAORemote;
+import tech.lapsa.java.commons.logging.MyLogger;
+
+// in-memory copies of the "who ever created/picked/completed requests" user
+// lists, the completed one is updated by the request transitions and all of
+// them are reloaded periodically to pick up the changes made elsewhere
+//
+// the lists are kept serialized so callers get the own mutable copies of the
+// lists and the users as they used to get from the DAO, see DetachedCopies
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class RequestUsersSnapshotBean {
+
+    @EJB
+    private UserDAORemote userDAO;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactions;
+
+    private final Snapshot created = new Snapshot("created");
+    private final Snapshot picked = new Snapshot("picked");
+    private final Snapshot completed = new Snapshot("completed");
+
+    @PostConstruct
+    public void init() {
+        reconcile();
+    }
+
+    public List<User> getWhoEverCreatedRequests() {
+        return created.get(userDAO::findAllWhoEverCreatedRequest);
+    }
+
+    public List<User> getWhoEverPickedRequests() {
+        return picked.get(userDAO::findAllWhoEverPickedRequest);
+    }
+
+    public List<User> getWhoEverCompletedRequests() {
+        return completed.get(userDAO::findAllWhoEverCompleteRequest);
+    }
+
+    // the snapshot is updated once the caller's transaction commits, with the
+    // user as it is now
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public void completedBy(final User user) {
+        if (user == null || user.getId() == null)
+            return;
+        final User detached = DetachedCopies.copyOf(user);
+        Transactions.afterCommit(transactions, () -> completed.add(detached));
+    }
+
+    @Schedule(hour = "*", minute = "*/15", persistent = false)
+    public void reconcile() {
+        created.reload(userDAO::findAllWhoEverCreatedRequest);
+        picked.reload(userDAO::findAllWhoEverPickedRequest);
+        completed.reload(userDAO::findAllWhoEverCompleteRequest);
+    }
+
+    // PRIVATE
+
+    private final class Snapshot {
+
+        private final String name;
+
+        // serialized ArrayList<User>
+        private volatile byte[] users;
+
+        private Snapshot(final String name) {
+            this.name = name;
+        }
+
+        private List<User> get(final Supplier<List<User>> loader) {
+            final byte[] loaded = users;
+            if (loaded != null)
+                return DetachedCopies.deserialize(loaded);
+            synchronized (this) {
+                if (users == null)
+                    users = DetachedCopies.serialize(new ArrayList<>(loader.get()));
+                return DetachedCopies.deserialize(users);
+            }
+        }
+
+        private void reload(final Supplier<List<User>> loader) {
+            try {
+                final byte[] loaded = DetachedCopies.serialize(new ArrayList<>(loader.get()));
+                synchronized (this) {
+                    users = loaded;
+                }
+            } catch (final EJBException e) {
+                logger.WARNING.log("Users who ever %1$s requests are not reloaded: %2$s", name, e.getMessage());
+            }
+        }
+
+        // the snapshot is rewritten on add, it is read far more often than a
+        // new user touches a request for the first time
+        private void add(final User user) {
+            synchronized (this) {
+                final byte[] loaded = users;
+                if (loaded == null)
+                    return;
+                final ArrayList<User> copy = DetachedCopies.deserialize(loaded);
+                if (copy.stream().anyMatch(u -> user.getId().equals(u.getId())))
+                    return;
+                copy.add(user);
+                users = DetachedCopies.serialize(copy);
+            }
+        }
+    }
+
+    private final MyLogger logger = MyLogger.newBuilder() //
+            .withNameOf(RequestUsersSnapshotBean.class) //
+            .build();
+}
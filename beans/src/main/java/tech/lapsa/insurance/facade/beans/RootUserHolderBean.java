@@ -0,0 +1,65 @@
+package tech.lapsa.insurance.facade.beans;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.EJBException;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+
+import com.lapsa.insurance.domain.crm.User;
+
+import tech.lapsa.insurance.dao.UserDAO.UserDAORemote;
+import tech.lapsa.java.commons.exceptions.IllegalArgument;
+import tech.lapsa.java.commons.logging.MyLogger;
+import tech.lapsa.patterns.dao.NotFound;
+
+// the system user with id 0 is never changed by the application so it is
+// loaded once and reloaded on explicit refresh() only, it is kept serialized
+// and every caller gets the own copy
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class RootUserHolderBean {
+
+    private static final int ROOT_USER_ID = 0;
+
+    @EJB
+    private UserDAORemote userDAO;
+
+    private volatile byte[] rootUser;
+
+    @PostConstruct
+    public void init() {
+        try {
+            refresh();
+        } catch (final EJBException e) {
+            // insurance-dao may be unavailable at startup, it will be loaded
+            // on demand
+            logger.WARNING.log("Root user is not loaded on startup: %1$s", e.getMessage());
+        }
+    }
+
+    public User get() throws EJBException {
+        final byte[] loaded = rootUser;
+        if (loaded != null)
+            return DetachedCopies.deserialize(loaded);
+        refresh();
+        return DetachedCopies.deserialize(rootUser);
+    }
+
+    public void refresh() throws EJBException {
+        try {
+            rootUser = DetachedCopies.serialize(userDAO.getById(ROOT_USER_ID));
+        } catch (IllegalArgument | NotFound e) {
+            throw new EJBException("Fatal error System user not found");
+        }
+    }
+
+    // PRIVATE
+
+    private final MyLogger logger = MyLogger.newBuilder() //
+            .withNameOf(RootUserHolderBean.class) //
+            .build();
+}
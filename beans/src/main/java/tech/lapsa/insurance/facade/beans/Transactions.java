@@ -0,0 +1,33 @@
+package tech.lapsa.insurance.facade.beans;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+final class Transactions {
+
+    private Transactions() {
+    }
+
+    // runs the action once the current transaction commits and never if it
+    // rolls back, right away when there is no transaction
+    static void afterCommit(final TransactionSynchronizationRegistry transactions, final Runnable action) {
+        if (transactions.getTransactionStatus() == Status.STATUS_NO_TRANSACTION) {
+            action.run();
+            return;
+        }
+
+        transactions.registerInterposedSynchronization(new Synchronization() {
+
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(final int status) {
+                if (status == Status.STATUS_COMMITTED)
+                    action.run();
+            }
+        });
+    }
+}
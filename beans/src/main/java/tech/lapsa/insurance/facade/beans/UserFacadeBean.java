@@ -1,14 +1,20 @@
 package tech.lapsa.insurance.facade.beans;
 
 import java.security.Principal;
+import java.util.Comparator;
 import java.util.List;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
+import javax.annotation.Resource;
 import javax.ejb.EJB;
 import javax.ejb.EJBException;
+import javax.ejb.LocalBean;
+import javax.ejb.SessionContext;
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
+import javax.interceptor.Interceptors;
 
 import com.lapsa.insurance.domain.crm.User;
 import com.lapsa.insurance.domain.crm.UserLogin;
@@ -17,24 +23,36 @@ import tech.lapsa.insurance.dao.UserDAO.UserDAORemote;
 import tech.lapsa.insurance.facade.UserFacade;
 import tech.lapsa.insurance.facade.UserFacade.UserFacadeLocal;
 import tech.lapsa.insurance.facade.UserFacade.UserFacadeRemote;
+import tech.lapsa.insurance.facade.UserListFacade.UserList;
+import tech.lapsa.insurance.facade.UserListFacade.UserListFacadeLocal;
+import tech.lapsa.insurance.facade.UserListFacade.UserListFacadeRemote;
+import tech.lapsa.insurance.facade.UserSummary;
+import tech.lapsa.insurance.facade.UserSummaryPage;
 import tech.lapsa.java.commons.exceptions.IllegalArgument;
+import tech.lapsa.java.commons.function.MyExceptions;
+import tech.lapsa.java.commons.function.MyNumbers;
 import tech.lapsa.java.commons.function.MyObjects;
 import tech.lapsa.java.commons.function.MyStrings;
 import tech.lapsa.java.commons.logging.MyLogger;
 import tech.lapsa.patterns.dao.NotFound;
 
 @Stateless(name = UserFacade.BEAN_NAME)
-public class UserFacadeBean implements UserFacadeLocal, UserFacadeRemote {
+@Interceptors(FacadeMetricsInterceptor.class)
+@LocalBean
+public class UserFacadeBean implements UserFacadeLocal, UserFacadeRemote, UserListFacadeLocal, UserListFacadeRemote {
 
     @EJB
     private UserDAORemote userDAO;
 
+    @EJB
+    private RequestUsersSnapshotBean requestUsers;
+
     // READERS
 
     @Override
     @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public List<User> getWhoEverCreatedRequests() {
-        return userDAO.findAllWhoEverCreatedRequest();
+        return requestUsers.getWhoEverCreatedRequests();
     }
 
     //
@@ -42,7 +60,7 @@ public class UserFacadeBean implements UserFacadeLocal, UserFacadeRemote {
     @Override
     @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public List<User> getWhoEverPickedRequests() {
-        return userDAO.findAllWhoEverPickedRequest();
+        return requestUsers.getWhoEverPickedRequests();
     }
 
     //
@@ -50,7 +68,7 @@ public class UserFacadeBean implements UserFacadeLocal, UserFacadeRemote {
     @Override
     @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public List<User> getWhoEverCompletedRequests() {
-        return userDAO.findAllWhoEverCompleteRequest();
+        return requestUsers.getWhoEverCompletedRequests();
     }
 
     //
@@ -69,10 +87,24 @@ public class UserFacadeBean implements UserFacadeLocal, UserFacadeRemote {
         return userDAO.findVisible();
     }
 
+    //
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public UserSummaryPage getPage(final UserList list, final Integer afterId, final Integer limit)
+            throws IllegalArgument {
+        try {
+            return _getPage(list, afterId, limit);
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgument(e);
+        }
+    }
+
     // MODIFIERS
 
+    // the user is created in the own transaction of findOrCreateUncached
     @Override
-    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public User findOrCreate(final String principalName) throws IllegalArgument {
         try {
             return _findOrCreate(principalName);
@@ -95,8 +127,27 @@ public class UserFacadeBean implements UserFacadeLocal, UserFacadeRemote {
         return _findOrCreate(principal.getName());
     }
 
+    // not a part of the business interfaces, it is invoked through the
+    // no-interface view so the created user is committed before the principal
+    // lock is released
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public User findOrCreateUncached(final String principalName) {
+        return _findOrCreateUncached(principalName);
+    }
+
+    @EJB
+    private PrincipalUserCacheBean principalUsers;
+
+    @Resource
+    private SessionContext context;
+
     private User _findOrCreate(final String principalName) throws IllegalArgumentException {
         MyStrings.requireNonEmpty(principalName, "principalName");
+        final UserFacadeBean self = context.getBusinessObject(UserFacadeBean.class);
+        return principalUsers.getOrCreate(principalName, self::findOrCreateUncached);
+    }
+
+    private User _findOrCreateUncached(final String principalName) {
         try {
             return userDAO.getByLogin(principalName);
         } catch (final IllegalArgument e) {
@@ -132,6 +183,57 @@ public class UserFacadeBean implements UserFacadeLocal, UserFacadeRemote {
 
     // PRIVATE
 
+    @Resource(name = "insurance-facade/user-list/max-page-size")
+    private Integer maxPageSize = 500;
+
+    private UserSummaryPage _getPage(final UserList list, final Integer afterId, final Integer limit)
+            throws IllegalArgumentException {
+        MyObjects.requireNonNull(list, "list");
+        MyNumbers.requirePositive(limit, "limit");
+        if (limit > maxPageSize)
+            throw MyExceptions.illegalArgumentFormat("Page size %1$s exceeds the maximum %2$s", limit, maxPageSize);
+
+        // UserDAO has no paged queries, every page still loads the whole list,
+        // the page is cut here so only the summaries of the single page cross
+        // the facade boundary
+        final List<UserSummary> rest = _getList(list).stream() //
+                .filter(u -> afterId == null || u.getId() > afterId) //
+                .sorted(Comparator.comparing(User::getId)) //
+                .limit(limit + 1) //
+                .map(UserFacadeBean::toSummary) //
+                .collect(Collectors.toList());
+
+        if (rest.size() <= limit)
+            return new UserSummaryPage(rest, null);
+        final List<UserSummary> page = rest.subList(0, limit);
+        return new UserSummaryPage(page, page.get(limit - 1).getId());
+    }
+
+    private List<User> _getList(final UserList list) {
+        switch (list) {
+        case ALL:
+            return getAll();
+        case VISIBLE:
+            return getAllVisible();
+        case WHO_EVER_CREATED_REQUESTS:
+            return getWhoEverCreatedRequests();
+        case WHO_EVER_PICKED_REQUESTS:
+            return getWhoEverPickedRequests();
+        case WHO_EVER_COMPLETED_REQUESTS:
+            return getWhoEverCompletedRequests();
+        }
+        throw new EJBException("Unexpected user list " + list);
+    }
+
+    private static UserSummary toSummary(final User user) {
+        final String login = user.getLogins() == null ? null
+                : user.getLogins().stream() //
+                        .map(UserLogin::getName) //
+                        .findFirst() //
+                        .orElse(null);
+        return new UserSummary(user.getId(), user.getName(), login);
+    }
+
     private final MyLogger logger = MyLogger.newBuilder() //
             .withNameOf(UserFacade.class) //
             .build();
@@ -165,12 +267,11 @@ public class UserFacadeBean implements UserFacadeLocal, UserFacadeRemote {
         }
     }
 
+    @EJB
+    private RootUserHolderBean rootUser;
+
     @Override
     public User getRootUser() {
-        try {
-            return userDAO.getById(0);
-        } catch (IllegalArgument | NotFound e) {
-            throw new EJBException("Fatal error System user not found");
-        }
+        return rootUser.get();
     }
 }
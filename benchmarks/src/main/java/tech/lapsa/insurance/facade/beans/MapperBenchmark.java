@@ -0,0 +1,243 @@
+package tech.lapsa.insurance.facade.beans;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.lapsa.insurance.domain.policy.Policy;
+import com.lapsa.insurance.domain.policy.PolicyDriver;
+import com.lapsa.insurance.domain.policy.PolicyVehicle;
+import com.lapsa.insurance.elements.IdentityCardType;
+import com.lapsa.insurance.elements.InsuranceClassType;
+import com.lapsa.insurance.elements.InsuredAgeClass;
+import com.lapsa.insurance.elements.InsuredExpirienceClass;
+import com.lapsa.insurance.elements.Sex;
+import com.lapsa.insurance.elements.VehicleAgeClass;
+import com.lapsa.insurance.elements.VehicleClass;
+import com.lapsa.international.country.Country;
+import com.lapsa.international.phone.PhoneNumber;
+import com.lapsa.kz.country.KZArea;
+import com.lapsa.kz.country.KZCity;
+
+import tech.lapsa.esbd.dao.elements.InsuranceClassTypeService;
+import tech.lapsa.esbd.domain.embeded.ContactInfo;
+import tech.lapsa.esbd.domain.embeded.DriverLicenseInfo;
+import tech.lapsa.esbd.domain.embeded.IdentityCardInfo;
+import tech.lapsa.esbd.domain.embeded.OriginInfo;
+import tech.lapsa.esbd.domain.embeded.PersonalInfo;
+import tech.lapsa.esbd.domain.embeded.VehicleCertificateInfo;
+import tech.lapsa.esbd.domain.entities.InsuredDriverEntity;
+import tech.lapsa.esbd.domain.entities.InsuredVehicleEntity;
+import tech.lapsa.esbd.domain.entities.PolicyEntity;
+import tech.lapsa.esbd.domain.entities.SubjectPersonEntity;
+import tech.lapsa.esbd.domain.entities.VehicleEntity;
+import tech.lapsa.esbd.domain.entities.VehicleManufacturerEntity;
+import tech.lapsa.esbd.domain.entities.VehicleModelEntity;
+import tech.lapsa.kz.taxpayer.TaxpayerNumber;
+
+// ESBD to domain mappers over synthetic policies of 1, 10 and 100 insured
+// drivers and vehicles filled the way ESBD fills them so every branch of the
+// mappers is taken, run with the allocation profiler:
+//
+// java -jar benchmarks/target/benchmarks.jar MapperBenchmark -prof gc
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    private static final InsuranceClassType DEFAULT_CLASS = InsuranceClassType.CLASS_3;
+
+    private static final String[] ID_NUMBERS = { "850214300013", "901122400010", "770630300014", "880915400012",
+            "950301300013" };
+
+    private static final String[] REG_NUMBERS = { "123ABC02", "456BCD01", "789CDE17", "012DEF05", "345EFG15" };
+
+    @Param({ "1", "10", "100" })
+    private int size;
+
+    private PolicyEntity policy;
+    private List<SubjectPersonEntity> subjects;
+    private List<InsuredDriverEntity> insuredDrivers;
+    private List<VehicleEntity> vehicles;
+    private List<InsuredVehicleEntity> insuredVehicles;
+
+    private InsuranceClassTypeService insuranceClassTypeService;
+
+    @Setup
+    public void setup() {
+        subjects = new ArrayList<>(size);
+        insuredDrivers = new ArrayList<>(size);
+        vehicles = new ArrayList<>(size);
+        insuredVehicles = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            final SubjectPersonEntity subject = subject(i);
+            subjects.add(subject);
+            insuredDrivers.add(InsuredDriverEntity.builder() //
+                    .withId(i) //
+                    .withInsured(subject) //
+                    .withInsuraceClassType(DEFAULT_CLASS) //
+                    .withAgeClass(InsuredAgeClass.OVER25) //
+                    .withExpirienceClass(InsuredExpirienceClass.MORE2) //
+                    .withDriverLicense(DriverLicenseInfo.builder() //
+                            .withNumber(String.format("AB%06d", i)) //
+                            .withDateOfIssue(LocalDate.of(2010, 5, 20)) //
+                            .build()) //
+                    .build());
+
+            final VehicleEntity vehicle = vehicle(i);
+            vehicles.add(vehicle);
+            insuredVehicles.add(InsuredVehicleEntity.builder() //
+                    .withId(i) //
+                    .withVehicle(vehicle) //
+                    .withCertificate(VehicleCertificateInfo.builder() //
+                            .withCertificateNumber(String.format("KZ%08d", i)) //
+                            .withDateOfIssue(LocalDate.of(2015, 3, 12)) //
+                            .withRegistrationNumber(REG_NUMBERS[i % REG_NUMBERS.length]) //
+                            .withRegistrationRegion(KZArea.GALM) //
+                            .build()) //
+                    .withVehicleAgeClass(VehicleAgeClass.UNDER7) //
+                    .withVehicleClass(VehicleClass.CAR) //
+                    .build());
+        }
+
+        policy = PolicyEntity.builder() //
+                .withId(1) //
+                .withNumber("BENCHMARK") //
+                .withInsurant(subjects.get(0)) //
+                .withInsuredDrivers(insuredDrivers) //
+                .withInsuredVehicles(insuredVehicles) //
+                .build();
+
+        insuranceClassTypeService = stubInsuranceClassTypeService();
+    }
+
+    @Benchmark
+    public Policy policy() {
+        return PolicyFacadeBean.fillFromESBDEntity(policy);
+    }
+
+    // the way the driver is fetched by the taxpayer number
+    @Benchmark
+    public void drivers(final Blackhole bh) {
+        for (final SubjectPersonEntity subject : subjects) {
+            final InsuranceClassType insuranceClassType = PolicyDriverFacadeBean.resolveInsuranceClass(subject,
+                    insuranceClassTypeService, DEFAULT_CLASS);
+            bh.consume(PolicyDriverFacadeBean.fillFromESBDEntity(subject, insuranceClassType));
+        }
+    }
+
+    @Benchmark
+    public void insuredDrivers(final Blackhole bh) {
+        for (final InsuredDriverEntity insuredDriver : insuredDrivers) {
+            final PolicyDriver driver = PolicyDriverFacadeBean.__fillFromESBDEntity(insuredDriver);
+            bh.consume(driver);
+        }
+    }
+
+    @Benchmark
+    public void vehicles(final Blackhole bh) {
+        for (final VehicleEntity vehicle : vehicles)
+            bh.consume(PolicyVehicleFacadeBean.fillFromESBDEntity(Optional.of(vehicle)));
+    }
+
+    @Benchmark
+    public void insuredVehicles(final Blackhole bh) {
+        for (final InsuredVehicleEntity insuredVehicle : insuredVehicles) {
+            final PolicyVehicle vehicle = PolicyVehicleFacadeBean.__fillFromESBDEntity(insuredVehicle);
+            bh.consume(vehicle);
+        }
+    }
+
+    // PRIVATE
+
+    private static SubjectPersonEntity subject(final int i) {
+        final String idNumber = ID_NUMBERS[i % ID_NUMBERS.length];
+        return SubjectPersonEntity.builder() //
+                .withId(i) //
+                .withIdNumber(TaxpayerNumber.assertValid(idNumber)) //
+                .withTaxPayerNumber(idNumber) //
+                .withPersonal(PersonalInfo.builder() //
+                        .withName("Name" + i) //
+                        .withSurename("Surename" + i) //
+                        .withPatronymic("Patronymic" + i) //
+                        .withDayOfBirth(LocalDate.of(1985, 2, 14).plusDays(i)) //
+                        .withGender(i % 2 == 0 ? Sex.MALE : Sex.FEMALE) //
+                        .build()) //
+                .withIdentityCard(IdentityCardInfo.builder() //
+                        .withNumber(String.format("%09d", i)) //
+                        .withDateOfIssue(LocalDate.of(2012, 7, 1)) //
+                        .withIdentityCardType(IdentityCardType.ID_CARD) //
+                        .withIssuingAuthority("MVD RK") //
+                        .build()) //
+                .withOrigin(OriginInfo.builder() //
+                        .withResident(true) //
+                        .withCountry(Country.KAZ) //
+                        .withCity(KZCity.ALM) //
+                        .build()) //
+                .withContact(ContactInfo.builder() //
+                        .withPhone(PhoneNumber.assertValid("+77012223344")) //
+                        .withEmail("driver" + i + "@example.com") //
+                        .withHomeAdress("Abay ave " + i) //
+                        .withSiteUrl("https://example.com/" + i) //
+                        .build()) //
+                .build();
+    }
+
+    private static VehicleEntity vehicle(final int i) {
+        return VehicleEntity.builder() //
+                .withId(i) //
+                .withVinCode(String.format("VIN%014d", i)) //
+                .withRealeaseDate(LocalDate.of(2012, 1, 1).plusDays(i)) //
+                .withVehicleClass(VehicleClass.CAR) //
+                .withColor("WHITE") //
+                .withVehicleModel(VehicleModelEntity.builder() //
+                        .withId(i) //
+                        .withName("Camry") //
+                        .withManufacturer(VehicleManufacturerEntity.builder() //
+                                .withId(1) //
+                                .withName("Toyota") //
+                                .build()) //
+                        .build()) //
+                .build();
+    }
+
+    // every method of the service answers the default class, the remote
+    // lookup cost is out of the mappers scope
+    private static InsuranceClassTypeService stubInsuranceClassTypeService() {
+        return (InsuranceClassTypeService) Proxy.newProxyInstance(MapperBenchmark.class.getClassLoader(),
+                new Class<?>[] { InsuranceClassTypeService.class }, (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class)
+                        switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "InsuranceClassTypeService stub";
+                        }
+                    if (method.getReturnType() == InsuranceClassType.class)
+                        return DEFAULT_CLASS;
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}